@@ -0,0 +1,84 @@
+package plc.project;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The types, variables and functions assigned by an {@link Analyzer} to the
+ * nodes of a tree, kept by node identity instead of in the nodes. A tree
+ * analyzed into an analysis is left unchanged, so one parsed tree can be
+ * analyzed against several scopes, each into its own analysis, including at
+ * the same time on different threads. The {@link Generator} reads the
+ * results from an analysis given to {@link Generator#setAnalysis(Analysis)}.
+ *
+ * An analysis is written by a single analyzer and may be read by any number
+ * of threads once the analyzer is done.
+ */
+public final class Analysis {
+
+    private final Map<Ast, Object> results = new IdentityHashMap<>();
+
+    /**
+     * Returns the type of the expression, as {@link Ast.Expr#getType()}
+     * would if the result had been assigned to the node.
+     */
+    public Environment.Type getType(Ast.Expr ast) {
+        return getType(results.get(ast));
+    }
+
+    /**
+     * Returns the variable of a field, declaration or access.
+     */
+    public Environment.Variable getVariable(Ast ast) {
+        Object result = results.get(ast);
+        if (!(result instanceof Environment.Variable)) {
+            throw new IllegalStateException("variable is uninitialized");
+        }
+        return (Environment.Variable) result;
+    }
+
+    /**
+     * Returns the function of a method or function call.
+     */
+    public Environment.Function getFunction(Ast ast) {
+        Object result = results.get(ast);
+        if (!(result instanceof Environment.Function)) {
+            throw new IllegalStateException("function is uninitialized");
+        }
+        return (Environment.Function) result;
+    }
+
+    /**
+     * Returns the number of nodes with a result.
+     */
+    public int size() {
+        return results.size();
+    }
+
+    /**
+     * Returns the type, variable or function of the node, or {@code null}.
+     */
+    Object get(Ast ast) {
+        return results.get(ast);
+    }
+
+    void put(Ast ast, Object result) {
+        results.put(ast, result);
+    }
+
+    /**
+     * Returns the type of an expression with the given result, which is the
+     * type of a variable and the return type of a function.
+     */
+    static Environment.Type getType(Object result) {
+        if (result == null) {
+            throw new IllegalStateException("type is uninitialized");
+        } else if (result instanceof Environment.Variable) {
+            return ((Environment.Variable) result).getType();
+        } else if (result instanceof Environment.Function) {
+            return ((Environment.Function) result).getReturnType();
+        }
+        return (Environment.Type) result;
+    }
+
+}
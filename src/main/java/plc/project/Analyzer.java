@@ -5,6 +5,7 @@ import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -13,8 +14,17 @@ import java.util.stream.Collectors;
  */
 public final class Analyzer implements Ast.Visitor<Void> {
 
+    /**
+     * Thrown to abandon a field or method after an error has been reported to
+     * the diagnostics. It is shared and has no stack trace, so reporting an
+     * error allocates nothing but the diagnostic.
+     */
+    private static final RuntimeException REPORTED = new RuntimeException(null, null, false, false) {};
+
     public Scope scope;
     private Ast.Method method;
+    private Diagnostics diagnostics;
+    private Analysis analysis;
 
     public Analyzer(Scope parent) {
         scope = new Scope(parent);
@@ -25,30 +35,156 @@ public final class Analyzer implements Ast.Visitor<Void> {
         return scope;
     }
 
+    /**
+     * Reports errors to the given diagnostics instead of throwing them. When
+     * visiting an {@link Ast.Source}, the analysis of a field or method stops
+     * at its first error and continues with the next one, so one run reports
+     * an error for each member that fails to analyze.
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Records the types, variables and functions in the given analysis
+     * instead of assigning them to the nodes, which are left unchanged.
+     */
+    public void setAnalysis(Analysis analysis) {
+        this.analysis = analysis;
+    }
+
     @Override
     public Void visit(Ast.Source ast) {
         Environment.Function function = null;
         for (Ast.Field statement : ast.getFields()) {
-            visit(statement);
+            visitMember(statement);
         }
         for (Ast.Method statement : ast.getMethods()) {
-            visit(statement);
+            visitMember(statement);
         }
-        function = scope.lookupFunction("main", 0);
-        if(!function.getReturnType().equals(Environment.Type.INTEGER)) {
-            throw new RuntimeException("main/0 needs to return an Integer (Ast.Source)");
+        try {
+            function = lookupFunction(scope, "main", 0, ast);
+            if(!function.getReturnType().equals(Environment.Type.INTEGER)) {
+                throw error(ast, Diagnostics.Code.INVALID, () -> "main/0 needs to return an Integer (Ast.Source)");
+            }
+        }
+        catch (RuntimeException e) {
+            //already reported to the diagnostics, if there are any
+            if(e != REPORTED) {
+                throw e;
+            }
         }
         return null;
     }
 
+    /**
+     * Visits a field or method, recording its errors in the diagnostics, if
+     * there are any, and continuing after them.
+     */
+    private void visitMember(Ast ast) {
+        if(diagnostics == null) {
+            visit(ast);
+            return;
+        }
+        Scope memberScope = scope;
+        try {
+            visit(ast);
+        }
+        catch (RuntimeException e) {
+            //anything but a reported error is a bug in the analyzer, not in the source
+            if(e != REPORTED) {
+                throw e;
+            }
+            scope = memberScope;
+        }
+    }
+
+    /**
+     * Returns the exception for an error at the given node. When reporting to
+     * diagnostics, the error is reported and the shared stackless exception is
+     * returned, and the message is only built if the diagnostic is read.
+     */
+    private RuntimeException error(Ast ast, Diagnostics.Code code, Supplier<String> message) {
+        if(diagnostics == null) {
+            return new RuntimeException(message.get());
+        }
+        diagnostics.report(ast.getIndex(), code, message);
+        return REPORTED;
+    }
+
+    /**
+     * Assigns the type, variable or function to the node, or records it in
+     * the analysis if there is one.
+     */
+    private void record(Ast ast, Object result) {
+        if(analysis == null) {
+            Ast.setAnalysis(ast, result);
+        }
+        else {
+            analysis.put(ast, result);
+        }
+    }
+
+    private Environment.Type getType(Ast.Expr ast) {
+        return analysis == null ? ast.getType() : analysis.getType(ast);
+    }
+
+    private void requireAssignable(Ast ast, Environment.Type target, Environment.Type type) {
+        if(!isAssignable(target, type)) {
+            throw error(ast, Diagnostics.Code.TYPE_MISMATCH, () -> " Type " + target.getName() + " can not be assigned to type: " + type.getName());
+        }
+    }
+
+    private Environment.Variable lookupVariable(Scope scope, String name, Ast ast) {
+        Environment.Variable variable = scope.findVariable(name);
+        if(variable == null) {
+            throw error(ast, Diagnostics.Code.UNDEFINED_VARIABLE, () -> "The variable " + name + " is not defined in this scope.");
+        }
+        return variable;
+    }
+
+    private Environment.Function lookupFunction(Scope scope, String name, int arity, Ast ast) {
+        Environment.Function function = scope.findFunction(name, arity);
+        if(function == null) {
+            throw error(ast, Diagnostics.Code.UNDEFINED_FUNCTION, () -> "The function " + name + "/" + arity + " is not defined in this scope.");
+        }
+        return function;
+    }
+
+    /**
+     * Defines the variable in the scope, reporting a variable already defined
+     * in it as an error at the node.
+     */
+    private Environment.Variable defineVariable(Scope scope, String name, Environment.Type type, Ast ast) {
+        try {
+            return scope.defineVariable(name, name, type, Environment.NIL);
+        }
+        catch (RuntimeException e) {
+            throw error(ast, Diagnostics.Code.INVALID, e::getMessage);
+        }
+    }
+
+    /**
+     * Returns the type with the given name, reporting an unknown type as an
+     * error at the node.
+     */
+    private Environment.Type lookupType(String name, Ast ast) {
+        try {
+            return Environment.getType(name);
+        }
+        catch (RuntimeException e) {
+            throw error(ast, Diagnostics.Code.INVALID, e::getMessage);
+        }
+    }
+
     @Override
     public Void visit(Ast.Field ast) {
         if(ast.getValue().isPresent()) {
             visit(ast.getValue().get());
-            requireAssignable(Environment.getType(ast.getTypeName()), ast.getValue().get().getType());
+            requireAssignable(ast, lookupType(ast.getTypeName(), ast), getType(ast.getValue().get()));
         }
-        scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(ast.getTypeName()), Environment.NIL);
-        ast.setVariable(scope.lookupVariable(ast.getName()));
+        defineVariable(scope, ast.getName(), lookupType(ast.getTypeName(), ast), ast);
+        record(ast, lookupVariable(scope, ast.getName(), ast));
 
         return null;
     }
@@ -57,28 +193,33 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Method ast) {
         List<Environment.Type> parameterTypes = new ArrayList<>();
         for (String type : ast.getParameterTypeNames()) {
-            parameterTypes.add(Environment.getType(type));
+            parameterTypes.add(lookupType(type, ast));
         }
         Environment.Type returnType = Environment.Type.NIL;
         if(ast.getReturnTypeName().isPresent()) {
-            returnType = Environment.getType(ast.getReturnTypeName().get());
+            returnType = lookupType(ast.getReturnTypeName().get(), ast);
         }
 
         Scope definitionScope = scope;
-        definitionScope.defineFunction(ast.getName(), ast.getName(), parameterTypes, returnType, args -> Environment.NIL);
-        ast.setFunction(definitionScope.lookupFunction(ast.getName(), ast.getParameters().size()));
+        try {
+            definitionScope.defineFunction(ast.getName(), ast.getName(), parameterTypes, returnType, args -> Environment.NIL);
+        }
+        catch (RuntimeException e) {
+            //thrown if the function is already defined in the scope
+            throw error(ast, Diagnostics.Code.INVALID, e::getMessage);
+        }
+        record(ast, definitionScope.lookupFunction(ast.getName(), ast.getParameters().size()));
 
         try{
             scope = new Scope(definitionScope);
             for(int i = 0; i < ast.getParameters().size(); i++){
-                Environment.Type type = Environment.getType(ast.getParameterTypeNames().get(i));
-                scope.defineVariable(ast.getParameters().get(i), ast.getParameters().get(i), type, Environment.NIL);
+                defineVariable(scope, ast.getParameters().get(i), parameterTypes.get(i), ast);
             }
 
             for (Ast.Stmt statement : ast.getStatements()) {
                 if(statement instanceof Ast.Stmt.Return) {
                     Ast.Expr.Group groupVariable = new Ast.Expr.Group(((Ast.Stmt.Return) statement).getValue());
-                    groupVariable.setType(returnType);
+                    record(groupVariable, returnType);
                     Ast.Stmt.Return returnVariable = new Ast.Stmt.Return(groupVariable);
                     visit(returnVariable);
                 }
@@ -97,7 +238,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Stmt.Expression ast) {
         visit(ast.getExpression());
         if(!(ast.getExpression() instanceof Ast.Expr.Function)) {
-            throw new RuntimeException("The expression is not an Ast.Expr.Function");
+            throw error(ast, Diagnostics.Code.INVALID, () -> "The expression is not an Ast.Expr.Function");
         }
         return null;
     }
@@ -109,17 +250,18 @@ public final class Analyzer implements Ast.Visitor<Void> {
         }
 
         if(ast.getTypeName().isPresent()) {
-            scope.defineVariable(ast.getName(), ast.getName(), Environment.getType(ast.getTypeName().get()), Environment.NIL);
+            defineVariable(scope, ast.getName(), lookupType(ast.getTypeName().get(), ast), ast);
         }
         else if(ast.getValue().isPresent()) {
-            scope.defineVariable(ast.getName(), ast.getName(), ast.getValue().get().getType(), Environment.NIL);
+            defineVariable(scope, ast.getName(), getType(ast.getValue().get()), ast);
         }
         else {
-            throw new RuntimeException("No typename nor value (Ast.Stmt.Declaration)");
+            throw error(ast, Diagnostics.Code.INVALID, () -> "No typename nor value (Ast.Stmt.Declaration)");
         }
-        ast.setVariable(scope.lookupVariable(ast.getName()));
+        Environment.Variable variable = lookupVariable(scope, ast.getName(), ast);
+        record(ast, variable);
         if(ast.getValue().isPresent()) {
-            requireAssignable(ast.getVariable().getType(), ast.getValue().get().getType());
+            requireAssignable(ast, variable.getType(), getType(ast.getValue().get()));
         }
         return null;
     }
@@ -132,10 +274,10 @@ public final class Analyzer implements Ast.Visitor<Void> {
             visit(ast.getReceiver());
             visit(ast.getValue());
 
-            requireAssignable(ast.getReceiver().getType(), ast.getValue().getType());
+            requireAssignable(ast, getType(ast.getReceiver()), getType(ast.getValue()));
         }
         else{
-            throw new RuntimeException("Expected Access Expression as receiver in Assignment Statement");
+            throw error(ast, Diagnostics.Code.INVALID, () -> "Expected Access Expression as receiver in Assignment Statement");
         }
 
         return null;
@@ -144,9 +286,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Stmt.If ast) {
         visit(ast.getCondition());
-        requireAssignable(Environment.Type.BOOLEAN, ast.getCondition().getType());
+        requireAssignable(ast, Environment.Type.BOOLEAN, getType(ast.getCondition()));
         if (ast.getThenStatements().isEmpty()) {
-            throw new RuntimeException("(IF) Then Statement is empty.");
+            throw error(ast, Diagnostics.Code.INVALID, () -> "(IF) Then Statement is empty.");
         }
 
         try {
@@ -174,14 +316,14 @@ public final class Analyzer implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Stmt.For ast) {
         visit(ast.getValue());
-        requireAssignable(Environment.Type.INTEGER_ITERABLE, ast.getValue().getType());
+        requireAssignable(ast, Environment.Type.INTEGER_ITERABLE, getType(ast.getValue()));
         if (ast.getStatements().isEmpty()) {
-            throw new RuntimeException("(For) Statement is empty.");
+            throw error(ast, Diagnostics.Code.INVALID, () -> "(For) Statement is empty.");
         }
 
         try {
             scope = new Scope(scope);
-            scope.defineVariable(ast.getName(), ast.getName(), Environment.Type.INTEGER, Environment.NIL);
+            defineVariable(scope, ast.getName(), Environment.Type.INTEGER, ast);
             for (Ast.Stmt statement : ast.getStatements()) {
                 visit(statement);
             }
@@ -196,7 +338,7 @@ public final class Analyzer implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Stmt.While ast) {
         visit(ast.getCondition());
-        requireAssignable(Environment.Type.BOOLEAN, ast.getCondition().getType());
+        requireAssignable(ast, Environment.Type.BOOLEAN, getType(ast.getCondition()));
         try {
             scope = new Scope(scope);
             for (Ast.Stmt stmt : ast.getStatements()) {
@@ -212,43 +354,51 @@ public final class Analyzer implements Ast.Visitor<Void> {
     public Void visit(Ast.Stmt.Return ast) {
         Ast.Expr.Group expr = (Ast.Expr.Group) ast.getValue();
         visit(expr.getExpression());
-        requireAssignable(expr.getType(), expr.getExpression().getType());
+        requireAssignable(expr.getExpression(), getType(expr), getType(expr.getExpression()));
         return null;
     }
 
     @Override
     public Void visit(Ast.Expr.Literal ast) {
 
+        if(ast.isInt()){
+            record(ast, Environment.Type.INTEGER);
+            return null;
+        }
+        else if(ast.isDouble()){
+            record(ast, Environment.Type.DECIMAL);
+            return null;
+        }
         Object literal = ast.getLiteral();
         if(literal instanceof BigInteger){
             if( ((BigInteger) literal).compareTo(BigInteger.valueOf(Integer.MAX_VALUE)) <= 0  && ((BigInteger) literal).compareTo(BigInteger.valueOf(Integer.MIN_VALUE)) >= 0){
-                ast.setType(Environment.Type.INTEGER);
+                record(ast, Environment.Type.INTEGER);
             }
             else{
-                throw new RuntimeException("Value " + literal + " out of range for type 'Integer'");
+                throw error(ast, Diagnostics.Code.INVALID, () -> "Value " + literal + " out of range for type 'Integer'");
             }
         }
         else if(literal instanceof BigDecimal){
             double decimal = ((BigDecimal) literal).doubleValue();
             if(decimal == Double.POSITIVE_INFINITY || decimal == Double.NEGATIVE_INFINITY){
-                throw new RuntimeException("Value " + literal + " out of range for type 'Decimal'");
+                throw error(ast, Diagnostics.Code.INVALID, () -> "Value " + literal + " out of range for type 'Decimal'");
             }
-            ast.setType(Environment.Type.DECIMAL);
+            record(ast, Environment.Type.DECIMAL);
         }
         else if(literal == null){
-            ast.setType(Environment.Type.NIL);
+            record(ast, Environment.Type.NIL);
         }
         else if(literal instanceof Boolean){
-            ast.setType(Environment.Type.BOOLEAN);
+            record(ast, Environment.Type.BOOLEAN);
         }
         else if(literal instanceof Character){
-            ast.setType(Environment.Type.CHARACTER);
+            record(ast, Environment.Type.CHARACTER);
         }
         else if(literal instanceof String){
-            ast.setType(Environment.Type.STRING);
+            record(ast, Environment.Type.STRING);
         }
         else{
-            throw new RuntimeException("Could not recognize type of literal: " + literal);
+            throw error(ast, Diagnostics.Code.INVALID, () -> "Could not recognize type of literal: " + literal);
         }
 
         return null;
@@ -257,9 +407,9 @@ public final class Analyzer implements Ast.Visitor<Void> {
     @Override
     public Void visit(Ast.Expr.Group ast) {
         visit(ast.getExpression());
-        ast.setType(ast.getExpression().getType());
+        record(ast, getType(ast.getExpression()));
         if(!(ast.getExpression() instanceof Ast.Expr.Binary)) {
-            throw new RuntimeException("The expression is not an Ast.Expr.Function");
+            throw error(ast, Diagnostics.Code.INVALID, () -> "The expression is not an Ast.Expr.Function");
         }
         return null;
     }
@@ -269,63 +419,63 @@ public final class Analyzer implements Ast.Visitor<Void> {
         visit(ast.getLeft());
         visit(ast.getRight());
         if(ast.getOperator().equals("AND") || ast.getOperator().equals("OR")) {
-            requireAssignable(Environment.Type.BOOLEAN, ast.getLeft().getType());
-            requireAssignable(Environment.Type.BOOLEAN, ast.getRight().getType());
-            ast.setType(Environment.Type.BOOLEAN);
+            requireAssignable(ast, Environment.Type.BOOLEAN, getType(ast.getLeft()));
+            requireAssignable(ast, Environment.Type.BOOLEAN, getType(ast.getRight()));
+            record(ast, Environment.Type.BOOLEAN);
         }
         else if(ast.getOperator().equals("<") || ast.getOperator().equals("<=") || ast.getOperator().equals(">") || ast.getOperator().equals(">=") || ast.getOperator().equals("==") || ast.getOperator().equals("!=")) {
-            requireAssignable(Environment.Type.COMPARABLE, ast.getLeft().getType());
-            requireAssignable(Environment.Type.COMPARABLE, ast.getRight().getType());
-            if(!ast.getLeft().getType().equals(ast.getRight().getType())) {
-                throw new RuntimeException("Both operands must be of the same type. (< <= ...)");
+            requireAssignable(ast, Environment.Type.COMPARABLE, getType(ast.getLeft()));
+            requireAssignable(ast, Environment.Type.COMPARABLE, getType(ast.getRight()));
+            if(!getType(ast.getLeft()).equals(getType(ast.getRight()))) {
+                throw error(ast, Diagnostics.Code.TYPE_MISMATCH, () -> "Both operands must be of the same type. (< <= ...)");
             }
-            ast.setType(Environment.Type.BOOLEAN);
+            record(ast, Environment.Type.BOOLEAN);
         }
         else if(ast.getOperator().equals("+")) {
-            if(ast.getLeft().getType().getName().equals("String") || ast.getRight().getType().getName().equals("String")) {
-                if(ast.getLeft().getType().getName().equals("String")) {
-                    requireAssignable(Environment.Type.STRING, ast.getLeft().getType());
-                    requireAssignable(Environment.Type.ANY, ast.getRight().getType());
+            if(getType(ast.getLeft()).getName().equals("String") || getType(ast.getRight()).getName().equals("String")) {
+                if(getType(ast.getLeft()).getName().equals("String")) {
+                    requireAssignable(ast, Environment.Type.STRING, getType(ast.getLeft()));
+                    requireAssignable(ast, Environment.Type.ANY, getType(ast.getRight()));
                 }
                 else {
-                    requireAssignable(Environment.Type.STRING, ast.getRight().getType());
-                    requireAssignable(Environment.Type.ANY, ast.getLeft().getType());
+                    requireAssignable(ast, Environment.Type.STRING, getType(ast.getRight()));
+                    requireAssignable(ast, Environment.Type.ANY, getType(ast.getLeft()));
                 }
-                ast.setType(Environment.Type.STRING);
+                record(ast, Environment.Type.STRING);
             }
             else {
-                if(ast.getLeft().getType().getName().equals("Integer")) {
-                    requireAssignable(Environment.Type.INTEGER, ast.getLeft().getType());
-                    requireAssignable(Environment.Type.INTEGER, ast.getRight().getType());
-                    ast.setType(Environment.Type.INTEGER);
+                if(getType(ast.getLeft()).getName().equals("Integer")) {
+                    requireAssignable(ast, Environment.Type.INTEGER, getType(ast.getLeft()));
+                    requireAssignable(ast, Environment.Type.INTEGER, getType(ast.getRight()));
+                    record(ast, Environment.Type.INTEGER);
                 }
-                else if(ast.getLeft().getType().getName().equals("Decimal")) {
-                    requireAssignable(Environment.Type.DECIMAL, ast.getLeft().getType());
-                    requireAssignable(Environment.Type.DECIMAL, ast.getRight().getType());
-                    ast.setType(Environment.Type.DECIMAL);
+                else if(getType(ast.getLeft()).getName().equals("Decimal")) {
+                    requireAssignable(ast, Environment.Type.DECIMAL, getType(ast.getLeft()));
+                    requireAssignable(ast, Environment.Type.DECIMAL, getType(ast.getRight()));
+                    record(ast, Environment.Type.DECIMAL);
                 }
                 else {
-                    throw new RuntimeException("LHS needs to be an Integer, a Decimal, or a String (+)");
+                    throw error(ast, Diagnostics.Code.TYPE_MISMATCH, () -> "LHS needs to be an Integer, a Decimal, or a String (+)");
                 }
             }
         }
         else if(ast.getOperator().equals("-")  || ast.getOperator().equals("*") || ast.getOperator().equals("/")) {
-            if(ast.getLeft().getType().getName().equals("Integer")) {
-                requireAssignable(Environment.Type.INTEGER, ast.getLeft().getType());
-                requireAssignable(Environment.Type.INTEGER, ast.getRight().getType());
-                ast.setType(Environment.Type.INTEGER);
+            if(getType(ast.getLeft()).getName().equals("Integer")) {
+                requireAssignable(ast, Environment.Type.INTEGER, getType(ast.getLeft()));
+                requireAssignable(ast, Environment.Type.INTEGER, getType(ast.getRight()));
+                record(ast, Environment.Type.INTEGER);
             }
-            else if(ast.getLeft().getType().getName().equals("Decimal")) {
-                requireAssignable(Environment.Type.DECIMAL, ast.getLeft().getType());
-                requireAssignable(Environment.Type.DECIMAL, ast.getRight().getType());
-                ast.setType(Environment.Type.DECIMAL);
+            else if(getType(ast.getLeft()).getName().equals("Decimal")) {
+                requireAssignable(ast, Environment.Type.DECIMAL, getType(ast.getLeft()));
+                requireAssignable(ast, Environment.Type.DECIMAL, getType(ast.getRight()));
+                record(ast, Environment.Type.DECIMAL);
             }
             else {
-                throw new RuntimeException("LHS needs to be an Integer, a Decimal, or a String (- * /)");
+                throw error(ast, Diagnostics.Code.TYPE_MISMATCH, () -> "LHS needs to be an Integer, a Decimal, or a String (- * /)");
             }
         }
         else {
-            throw new RuntimeException("Wrong Operator (Ast.Expr.Binary ast)");
+            throw error(ast, Diagnostics.Code.INVALID, () -> "Wrong Operator (Ast.Expr.Binary ast)");
         }
 
         return null;
@@ -336,8 +486,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
 
         //if no reciever this is not a field
         if(!ast.getReceiver().isPresent()){
-            Environment.Variable var = scope.lookupVariable(ast.getName());
-            ast.setVariable(var);
+            Environment.Variable var = lookupVariable(scope, ast.getName(), ast);
+            record(ast, var);
         }
         //this is a field
         else{
@@ -345,8 +495,8 @@ public final class Analyzer implements Ast.Visitor<Void> {
             Ast.Expr.Access reciever = (Ast.Expr.Access) ast.getReceiver().get();
             visit(reciever);
             //get scope of reciever object type to search for and set its field's variable in the current scope
-            Environment.Type recieverClass = reciever.getType();
-            ast.setVariable(recieverClass.getScope().lookupVariable(ast.getName()));
+            Environment.Type recieverClass = getType(reciever);
+            record(ast, lookupVariable(recieverClass.getScope(), ast.getName(), ast));
         }
 
         return null;
@@ -358,14 +508,14 @@ public final class Analyzer implements Ast.Visitor<Void> {
         //if this is a function in the main scope
         if(!ast.getReceiver().isPresent()){
             //lookup function and verify that parameter types are assignable based on the function definition
-            Environment.Function function = scope.lookupFunction(ast.getName(), ast.getArguments().size());
+            Environment.Function function = lookupFunction(scope, ast.getName(), ast.getArguments().size(), ast);
             for(int i = 0; i < ast.getArguments().size(); i++){
                 //visit in Analyzer in order to enumerate the type of this expression
                 visit(ast.getArguments().get(i));
-                requireAssignable(function.getParameterTypes().get(i), ast.getArguments().get(i).getType());
+                requireAssignable(ast, function.getParameterTypes().get(i), getType(ast.getArguments().get(i)));
             }
 
-            ast.setFunction(function);
+            record(ast, function);
 
         }
         //if this is an object method, evaluate the receiver as an access and then define the function in the class scope
@@ -374,16 +524,16 @@ public final class Analyzer implements Ast.Visitor<Void> {
             //visit and enumerate the receiver
             visit(ast.getReceiver().get());
             //search for function in receiver class scope
-            Environment.Function function = ast.getReceiver().get().getType().getScope().lookupFunction(ast.getName(), ast.getArguments().size()+1);
+            Environment.Function function = lookupFunction(getType(ast.getReceiver().get()).getScope(), ast.getName(), ast.getArguments().size()+1, ast);
 
             //lookup function and verify that parameter types are assignable based on the function definition
             for(int i = 0; i < ast.getArguments().size(); i++){
                 //visit in Analyzer in order to enumerate the type of this expression
                 visit(ast.getArguments().get(i));
-                requireAssignable(function.getParameterTypes().get(i+1), ast.getArguments().get(i).getType());
+                requireAssignable(ast, function.getParameterTypes().get(i+1), getType(ast.getArguments().get(i)));
             }
 
-            ast.setFunction(function);
+            record(ast, function);
 
         }
 
@@ -391,20 +541,23 @@ public final class Analyzer implements Ast.Visitor<Void> {
     }
 
     public static void requireAssignable(Environment.Type target, Environment.Type type) {
+        if(!isAssignable(target, type)) {
+            throw new RuntimeException(" Type " + target.getName() + " can not be assigned to type: " + type.getName());
+        }
+    }
+
+    public static boolean isAssignable(Environment.Type target, Environment.Type type) {
         //check whether types abide by assignability rules
         if(target.getName().equals(type.getName())){
-            return;
+            return true;
         }
         else if(target.getName().equals("Any")){
-            return;
+            return true;
         }
         else if(target.getName().equals("Comparable")){
-            if(type.getName().equals("Integer") || type.getName().equals("Decimal") || type.getName().equals("Character") || type.getName().equals("String")){
-                return;
-            }
+            return type.getName().equals("Integer") || type.getName().equals("Decimal") || type.getName().equals("Character") || type.getName().equals("String");
         }
-
-        throw new RuntimeException(" Type " + target.getName() + " can not be assigned to type: " + type.getName());
+        return false;
     }
 
 }
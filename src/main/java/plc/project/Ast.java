@@ -1,5 +1,7 @@
 package plc.project;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -11,6 +13,84 @@ import java.util.Optional;
  */
 public abstract class Ast {
 
+    private int index = -1;
+
+    /**
+     * Returns the index of the token this node was parsed from, or {@code -1}
+     * if the node was not created by the {@link Parser}. The index is not part
+     * of a node's equality.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Calls the visit method of the visitor for the type of this node, so
+     * that {@link Visitor#visit(Ast)} dispatches with a single virtual call.
+     */
+    public abstract <T> T accept(Visitor<T> visitor);
+
+    /**
+     * Returns the type, variable or function the {@link Analyzer} assigned to
+     * the node, or {@code null} if it has none yet, for copying nodes into
+     * another representation without the exceptions of the getters.
+     */
+    static Object analysis(Ast ast) {
+        if (ast instanceof Field) {
+            return ((Field) ast).variable;
+        } else if (ast instanceof Method) {
+            return ((Method) ast).function;
+        } else if (ast instanceof Stmt.Declaration) {
+            return ((Stmt.Declaration) ast).variable;
+        } else if (ast instanceof Expr.Literal) {
+            return ((Expr.Literal) ast).type;
+        } else if (ast instanceof Expr.Group) {
+            return ((Expr.Group) ast).type;
+        } else if (ast instanceof Expr.Binary) {
+            return ((Expr.Binary) ast).type;
+        } else if (ast instanceof Expr.Access) {
+            return ((Expr.Access) ast).variable;
+        } else if (ast instanceof Expr.Function) {
+            return ((Expr.Function) ast).function;
+        }
+        return null;
+    }
+
+    /**
+     * Assigns the type, variable or function to the node, which must be a
+     * node the {@link Analyzer} assigns that kind of result to, the inverse
+     * of {@link #analysis(Ast)}.
+     */
+    static void setAnalysis(Ast ast, Object analysis) {
+        if (analysis instanceof Environment.Type) {
+            if (ast instanceof Expr.Literal) {
+                ((Expr.Literal) ast).setType((Environment.Type) analysis);
+            } else if (ast instanceof Expr.Group) {
+                ((Expr.Group) ast).setType((Environment.Type) analysis);
+            } else {
+                ((Expr.Binary) ast).setType((Environment.Type) analysis);
+            }
+        } else if (analysis instanceof Environment.Variable) {
+            if (ast instanceof Field) {
+                ((Field) ast).setVariable((Environment.Variable) analysis);
+            } else if (ast instanceof Stmt.Declaration) {
+                ((Stmt.Declaration) ast).setVariable((Environment.Variable) analysis);
+            } else {
+                ((Expr.Access) ast).setVariable((Environment.Variable) analysis);
+            }
+        } else if (analysis instanceof Environment.Function) {
+            if (ast instanceof Method) {
+                ((Method) ast).setFunction((Environment.Function) analysis);
+            } else {
+                ((Expr.Function) ast).setFunction((Environment.Function) analysis);
+            }
+        }
+    }
+
     public static final class Source extends Ast {
 
         private final List<Field> fields;
@@ -29,6 +109,11 @@ public abstract class Ast {
             return methods;
         }
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Source &&
@@ -36,6 +121,11 @@ public abstract class Ast {
                     methods.equals(((Source) obj).methods);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(fields, methods);
+        }
+
         @Override
         public String toString() {
             return "Ast.Source{" +
@@ -86,6 +176,11 @@ public abstract class Ast {
             this.variable = variable;
         }
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Field &&
@@ -95,6 +190,11 @@ public abstract class Ast {
                     Objects.equals(variable, ((Field) obj).variable);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, typeName, value, variable);
+        }
+
         @Override
         public String toString() {
             return "Field{" +
@@ -162,6 +262,11 @@ public abstract class Ast {
             this.function = function;
         }
 
+        @Override
+        public <T> T accept(Visitor<T> visitor) {
+            return visitor.visit(this);
+        }
+
         @Override
         public boolean equals(Object obj) {
             return obj instanceof Method &&
@@ -173,6 +278,11 @@ public abstract class Ast {
                     Objects.equals(function, ((Method) obj).function);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, parameters, parameterTypeNames, returnTypeName, statements, function);
+        }
+
         @Override
         public String toString() {
             return "Method{" +
@@ -201,12 +311,22 @@ public abstract class Ast {
                 return expression;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Expression &&
                         expression.equals(((Expression) obj).expression);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(expression);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Stmt.Expression{" +
@@ -256,6 +376,11 @@ public abstract class Ast {
                 this.variable = variable;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Declaration &&
@@ -265,6 +390,11 @@ public abstract class Ast {
                         Objects.equals(variable, ((Declaration) obj).variable);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(name, typeName, value, variable);
+            }
+
             @Override
             public String toString() {
                 return "Declaration{" +
@@ -295,6 +425,11 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Assignment &&
@@ -302,6 +437,11 @@ public abstract class Ast {
                         value.equals(((Assignment) obj).value);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(receiver, value);
+            }
+
             @Override
             public final String toString() {
                 return "Ast.Stmt.Assignment{" +
@@ -337,6 +477,11 @@ public abstract class Ast {
                 return elseStatements;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof If &&
@@ -345,6 +490,11 @@ public abstract class Ast {
                         elseStatements.equals(((If) obj).elseStatements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(condition, thenStatements, elseStatements);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Stmt.If{" +
@@ -380,6 +530,11 @@ public abstract class Ast {
                 return statements;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof For &&
@@ -388,6 +543,11 @@ public abstract class Ast {
                         statements.equals(((For) obj).statements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(name, value, statements);
+            }
+
             @Override
             public String toString() {
                 return "For{" +
@@ -417,6 +577,11 @@ public abstract class Ast {
                 return statements;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof While &&
@@ -424,6 +589,11 @@ public abstract class Ast {
                         statements.equals(((While) obj).statements);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(condition, statements);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Stmt.While{" +
@@ -446,12 +616,22 @@ public abstract class Ast {
                 return value;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Return &&
                         value.equals(((Return) obj).value);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(value);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Stmt.Return{" +
@@ -469,15 +649,98 @@ public abstract class Ast {
 
         public static final class Literal extends Expr {
 
+            private static final byte OBJECT = 0;
+            private static final byte INT = 1;
+            private static final byte DOUBLE = 2;
+
             private final Object literal;
+            private final long value;
+            private final byte form;
+            private String text = null;
             private Environment.Type type = null;
 
             public Literal(Object literal) {
                 this.literal = literal;
+                this.value = 0;
+                this.form = OBJECT;
+            }
+
+            private Literal(byte form, long value) {
+                this.literal = null;
+                this.value = value;
+                this.form = form;
+            }
+
+            /**
+             * Returns an integer literal stored as an {@code int}, without a
+             * {@link BigInteger}.
+             */
+            public static Literal ofInteger(int value) {
+                return new Literal(INT, value);
+            }
+
+            /**
+             * Returns a decimal literal stored as a {@code double}, without a
+             * {@link BigDecimal}. Negative zero is stored as zero,
+             * since a {@code BigDecimal} has no sign for zero.
+             */
+            public static Literal ofDecimal(double value) {
+                if (Double.isInfinite(value) || Double.isNaN(value)) {
+                    throw new IllegalArgumentException("Decimal literal " + value + " is not finite.");
+                }
+                return new Literal(DOUBLE, Double.doubleToLongBits(value == 0.0 ? 0.0 : value));
             }
 
+            /**
+             * Returns the value of the literal. For a literal created by
+             * {@link #ofInteger(int)} or {@link #ofDecimal(double)}, this
+             * creates its {@code BigInteger} or {@code BigDecimal} form on each
+             * call, so passes that handle numbers should check {@link #isInt()}
+             * and {@link #isDouble()} first.
+             */
             public Object getLiteral() {
-                return literal;
+                switch (form) {
+                    case INT:
+                        return BigInteger.valueOf((int) value);
+                    case DOUBLE:
+                        return new BigDecimal(getDecimalText());
+                    default:
+                        return literal;
+                }
+            }
+
+            public boolean isInt() {
+                return form == INT;
+            }
+
+            public int getInt() {
+                if (form != INT) {
+                    throw new IllegalStateException("literal is not an int");
+                }
+                return (int) value;
+            }
+
+            public boolean isDouble() {
+                return form == DOUBLE;
+            }
+
+            public double getDouble() {
+                if (form != DOUBLE) {
+                    throw new IllegalStateException("literal is not a double");
+                }
+                return Double.longBitsToDouble(value);
+            }
+
+            /**
+             * Returns the text of a decimal literal created by
+             * {@link #ofDecimal(double)}, as by {@link Double#toString(double)},
+             * which is only created on the first call.
+             */
+            public String getDecimalText() {
+                if (text == null) {
+                    text = Double.toString(getDouble());
+                }
+                return text;
             }
 
             @Override
@@ -492,17 +755,48 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
-                return obj instanceof Literal &&
-                        Objects.equals(literal, ((Literal) obj).literal) &&
-                        Objects.equals(type, ((Literal) obj).type);
+                if (!(obj instanceof Literal) || !Objects.equals(type, ((Literal) obj).type)) {
+                    return false;
+                }
+                Literal other = (Literal) obj;
+                //compares the primitives directly, and only boxes one to compare it to the other form
+                if (form != OBJECT && other.form != OBJECT) {
+                    return form == other.form && value == other.value;
+                } else if (form == OBJECT && other.form == OBJECT) {
+                    return Objects.equals(literal, other.literal);
+                }
+                return Objects.equals(getLiteral(), other.getLiteral());
+            }
+
+            @Override
+            public int hashCode() {
+                int hash;
+                if (form == INT) {
+                    hash = (int) value;
+                } else if (form == DOUBLE) {
+                    hash = Long.hashCode(value);
+                } else if (literal instanceof BigInteger && ((BigInteger) literal).bitLength() < 32) {
+                    //hashes numbers as equal literals of the primitive forms do
+                    hash = ((BigInteger) literal).intValue();
+                } else if (literal instanceof BigDecimal) {
+                    hash = Double.hashCode(((BigDecimal) literal).doubleValue());
+                } else {
+                    hash = Objects.hashCode(literal);
+                }
+                return 31 * hash + Objects.hashCode(type);
             }
 
             @Override
             public String toString() {
                 return "Ast.Expr.Literal{" +
-                        "literal=" + literal +
+                        "literal=" + getLiteral() +
                         ", type=" + type +
                         '}';
             }
@@ -533,6 +827,11 @@ public abstract class Ast {
             public void setType(Environment.Type type) {
                 this.type = type;
             }
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Group &&
@@ -540,6 +839,11 @@ public abstract class Ast {
                         Objects.equals(type, ((Group) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(expression, type);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Group{" +
@@ -587,6 +891,11 @@ public abstract class Ast {
                 this.type = type;
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Binary &&
@@ -596,6 +905,11 @@ public abstract class Ast {
                         Objects.equals(type, ((Binary) obj).type);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(operator, left, right, type);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Binary{" +
@@ -643,6 +957,11 @@ public abstract class Ast {
                 return getVariable().getType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Access &&
@@ -651,6 +970,11 @@ public abstract class Ast {
                         Objects.equals(variable, ((Access) obj).variable);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(receiver, name, variable);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Access{" +
@@ -703,6 +1027,11 @@ public abstract class Ast {
                 return getFunction().getReturnType();
             }
 
+            @Override
+            public <T> T accept(Visitor<T> visitor) {
+                return visitor.visit(this);
+            }
+
             @Override
             public boolean equals(Object obj) {
                 return obj instanceof Function &&
@@ -712,6 +1041,11 @@ public abstract class Ast {
                         Objects.equals(function, ((Function) obj).function);
             }
 
+            @Override
+            public int hashCode() {
+                return Objects.hash(receiver, name, arguments, function);
+            }
+
             @Override
             public String toString() {
                 return "Ast.Expr.Function{" +
@@ -729,39 +1063,7 @@ public abstract class Ast {
     public interface Visitor<T> {
 
         default T visit(Ast ast) {
-            if (ast instanceof Source) {
-                return visit((Source) ast);
-            } else if (ast instanceof Field) {
-                return visit((Field) ast);
-            } else if (ast instanceof Method) {
-                return visit((Method) ast);
-            } else if (ast instanceof Stmt.Expression) {
-                return visit((Stmt.Expression) ast);
-            } else if (ast instanceof Stmt.Declaration) {
-                return visit((Stmt.Declaration) ast);
-            } else if (ast instanceof Stmt.Assignment) {
-                return visit((Stmt.Assignment) ast);
-            } else if (ast instanceof Stmt.If) {
-                return visit((Stmt.If) ast);
-            } else if (ast instanceof Stmt.For) {
-                return visit((Stmt.For) ast);
-            } else if (ast instanceof Stmt.While) {
-                return visit((Stmt.While) ast);
-            } else if (ast instanceof Stmt.Return) {
-                return visit((Stmt.Return) ast);
-            } else if (ast instanceof Expr.Literal) {
-                return visit((Expr.Literal) ast);
-            } else if (ast instanceof Expr.Group) {
-                return visit((Expr.Group) ast);
-            } else if (ast instanceof Expr.Binary) {
-                return visit((Expr.Binary) ast);
-            } else if (ast instanceof Expr.Access) {
-                return visit((Expr.Access) ast);
-            } else if (ast instanceof Expr.Function) {
-                return visit((Expr.Function) ast);
-            } else {
-                throw new AssertionError("Unimplemented AST type: " + ast.getClass().getName() + ".");
-            }
+            return ast.accept(this);
         }
 
         T visit(Source ast);
@@ -0,0 +1,142 @@
+package plc.project;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Creates literal, access, group and binary expressions for the
+ * {@link Parser}, returning the node it already created for a structurally
+ * equal expression instead of a new one. Children are compared by identity,
+ * since they were interned first, so a lookup is constant time.
+ *
+ * Shared nodes are still assigned a type or variable by the
+ * {@link Analyzer}, so a node is only shared where every occurrence is
+ * assigned the same one. A literal's type depends only on its value, so
+ * literals are shared for the whole parse. An access depends on the variable
+ * its name refers to, and groups and binary expressions on the types of
+ * their operands, so the parser calls {@link #invalidate()} wherever a name
+ * may start to refer to another variable: after a declaration and at each
+ * {@code DO}, {@code ELSE} and {@code END}. A shared node keeps the token
+ * index of its first occurrence.
+ */
+public final class AstInterner {
+
+    private static final int LITERAL = 0;
+    private static final int INT = 1;
+    private static final int DOUBLE = 2;
+    private static final int ACCESS = 3;
+    private static final int GROUP = 4;
+    private static final int BINARY = 5;
+
+    private final Map<Key, Ast.Expr.Literal> literals = new HashMap<>();
+    private final Map<Key, Ast.Expr> expressions = new HashMap<>();
+    private int deduplicated = 0;
+
+    /**
+     * Returns the number of nodes that were shared instead of created.
+     */
+    public int getDeduplicated() {
+        return deduplicated;
+    }
+
+    /**
+     * Forgets the shared access, group and binary expressions, since names
+     * may refer to other variables from here on.
+     */
+    public void invalidate() {
+        expressions.clear();
+    }
+
+    /**
+     * Returns the shared literal equal to the given one, which becomes the
+     * shared literal with the given index if there isn't one yet.
+     */
+    public Ast.Expr.Literal literal(int index, Ast.Expr.Literal literal) {
+        Key key = literal.isInt() ? new Key(INT, literal.getInt(), null, null)
+                : literal.isDouble() ? new Key(DOUBLE, literal.getDouble(), null, null)
+                : new Key(LITERAL, literal.getLiteral(), null, null);
+        Ast.Expr.Literal shared = literals.get(key);
+        if (shared != null) {
+            deduplicated++;
+            return shared;
+        }
+        literal.setIndex(index);
+        literals.put(key, literal);
+        return literal;
+    }
+
+    public Ast.Expr.Access access(int index, Optional<Ast.Expr> receiver, String name) {
+        Key key = new Key(ACCESS, name, receiver.orElse(null), null);
+        Ast.Expr shared = expressions.get(key);
+        if (shared != null) {
+            deduplicated++;
+            return (Ast.Expr.Access) shared;
+        }
+        return put(index, key, new Ast.Expr.Access(receiver, name));
+    }
+
+    public Ast.Expr.Group group(int index, Ast.Expr expression) {
+        Key key = new Key(GROUP, null, expression, null);
+        Ast.Expr shared = expressions.get(key);
+        if (shared != null) {
+            deduplicated++;
+            return (Ast.Expr.Group) shared;
+        }
+        return put(index, key, new Ast.Expr.Group(expression));
+    }
+
+    public Ast.Expr.Binary binary(int index, String operator, Ast.Expr left, Ast.Expr right) {
+        Key key = new Key(BINARY, operator, left, right);
+        Ast.Expr shared = expressions.get(key);
+        if (shared != null) {
+            deduplicated++;
+            return (Ast.Expr.Binary) shared;
+        }
+        return put(index, key, new Ast.Expr.Binary(operator, left, right));
+    }
+
+    private <T extends Ast.Expr> T put(int index, Key key, T expression) {
+        expression.setIndex(index);
+        expressions.put(key, expression);
+        return expression;
+    }
+
+    /**
+     * The kind of a node, its value, name or operator, and its children,
+     * which are compared by identity.
+     */
+    private static final class Key {
+
+        private final int kind;
+        private final Object value;
+        private final Ast first;
+        private final Ast second;
+
+        private Key(int kind, Object value, Ast first, Ast second) {
+            this.kind = kind;
+            this.value = value;
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key
+                    && kind == ((Key) obj).kind
+                    && Objects.equals(value, ((Key) obj).value)
+                    && first == ((Key) obj).first
+                    && second == ((Key) obj).second;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * kind + Objects.hashCode(value);
+            hash = 31 * hash + System.identityHashCode(first);
+            return 31 * hash + System.identityHashCode(second);
+        }
+
+    }
+
+}
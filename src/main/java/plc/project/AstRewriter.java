@@ -0,0 +1,212 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Base class for passes that transform an analyzed AST. By default each
+ * visit method rewrites the children of a node and returns the node itself
+ * if none of them changed, or otherwise a copy with the new children, the
+ * same types, variables and functions assigned by the {@link Analyzer}, and
+ * the same token index. Passes override the visit methods for the nodes they
+ * transform.
+ */
+public abstract class AstRewriter implements Ast.Visitor<Ast> {
+
+    @Override
+    public Ast visit(Ast.Source ast) {
+        List<Ast.Field> fields = rewrite(ast.getFields());
+        List<Ast.Method> methods = rewrite(ast.getMethods());
+        if (fields == ast.getFields() && methods == ast.getMethods()) {
+            return ast;
+        }
+        return at(ast, new Ast.Source(fields, methods));
+    }
+
+    @Override
+    public Ast visit(Ast.Field ast) {
+        Optional<Ast.Expr> value = rewrite(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Field field = at(ast, new Ast.Field(ast.getName(), ast.getTypeName(), value));
+        field.setVariable(ast.getVariable());
+        return field;
+    }
+
+    @Override
+    public Ast visit(Ast.Method ast) {
+        List<Ast.Stmt> statements = rewriteStatements(ast.getStatements());
+        if (statements == ast.getStatements()) {
+            return ast;
+        }
+        Ast.Method method = at(ast, new Ast.Method(ast.getName(), ast.getParameters(), ast.getParameterTypeNames(), ast.getReturnTypeName(), statements));
+        method.setFunction(ast.getFunction());
+        return method;
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Expression ast) {
+        Ast.Expr expression = rewrite(ast.getExpression());
+        return expression == ast.getExpression() ? ast : at(ast, new Ast.Stmt.Expression(expression));
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Declaration ast) {
+        Optional<Ast.Expr> value = rewrite(ast.getValue());
+        if (value == ast.getValue()) {
+            return ast;
+        }
+        Ast.Stmt.Declaration declaration = at(ast, new Ast.Stmt.Declaration(ast.getName(), ast.getTypeName(), value));
+        declaration.setVariable(ast.getVariable());
+        return declaration;
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Assignment ast) {
+        Ast.Expr receiver = rewrite(ast.getReceiver());
+        Ast.Expr value = rewrite(ast.getValue());
+        if (receiver == ast.getReceiver() && value == ast.getValue()) {
+            return ast;
+        }
+        return at(ast, new Ast.Stmt.Assignment(receiver, value));
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.If ast) {
+        Ast.Expr condition = rewrite(ast.getCondition());
+        List<Ast.Stmt> thenStatements = rewriteStatements(ast.getThenStatements());
+        List<Ast.Stmt> elseStatements = rewriteStatements(ast.getElseStatements());
+        if (condition == ast.getCondition() && thenStatements == ast.getThenStatements() && elseStatements == ast.getElseStatements()) {
+            return ast;
+        }
+        return at(ast, new Ast.Stmt.If(condition, thenStatements, elseStatements));
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.For ast) {
+        Ast.Expr value = rewrite(ast.getValue());
+        List<Ast.Stmt> statements = rewriteStatements(ast.getStatements());
+        if (value == ast.getValue() && statements == ast.getStatements()) {
+            return ast;
+        }
+        return at(ast, new Ast.Stmt.For(ast.getName(), value, statements));
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.While ast) {
+        Ast.Expr condition = rewrite(ast.getCondition());
+        List<Ast.Stmt> statements = rewriteStatements(ast.getStatements());
+        if (condition == ast.getCondition() && statements == ast.getStatements()) {
+            return ast;
+        }
+        return at(ast, new Ast.Stmt.While(condition, statements));
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.Return ast) {
+        Ast.Expr value = rewrite(ast.getValue());
+        return value == ast.getValue() ? ast : at(ast, new Ast.Stmt.Return(value));
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Literal ast) {
+        return ast;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Group ast) {
+        Ast.Expr expression = rewrite(ast.getExpression());
+        if (expression == ast.getExpression()) {
+            return ast;
+        }
+        Ast.Expr.Group group = at(ast, new Ast.Expr.Group(expression));
+        group.setType(ast.getType());
+        return group;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Binary ast) {
+        Ast.Expr left = rewrite(ast.getLeft());
+        Ast.Expr right = rewrite(ast.getRight());
+        if (left == ast.getLeft() && right == ast.getRight()) {
+            return ast;
+        }
+        Ast.Expr.Binary binary = at(ast, new Ast.Expr.Binary(ast.getOperator(), left, right));
+        binary.setType(ast.getType());
+        return binary;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Access ast) {
+        Optional<Ast.Expr> receiver = rewrite(ast.getReceiver());
+        if (receiver == ast.getReceiver()) {
+            return ast;
+        }
+        Ast.Expr.Access access = at(ast, new Ast.Expr.Access(receiver, ast.getName()));
+        access.setVariable(ast.getVariable());
+        return access;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Function ast) {
+        Optional<Ast.Expr> receiver = rewrite(ast.getReceiver());
+        List<Ast.Expr> arguments = rewrite(ast.getArguments());
+        if (receiver == ast.getReceiver() && arguments == ast.getArguments()) {
+            return ast;
+        }
+        Ast.Expr.Function function = at(ast, new Ast.Expr.Function(receiver, ast.getName(), arguments));
+        function.setFunction(ast.getFunction());
+        return function;
+    }
+
+    /**
+     * Gives a rewritten node the token index of the node it replaces, for the
+     * {@link SourceMap}, and returns it.
+     */
+    protected static <T extends Ast> T at(Ast original, T ast) {
+        ast.setIndex(original.getIndex());
+        return ast;
+    }
+
+    protected Ast.Expr rewrite(Ast.Expr expr) {
+        return (Ast.Expr) visit(expr);
+    }
+
+    protected Optional<Ast.Expr> rewrite(Optional<Ast.Expr> expr) {
+        if (!expr.isPresent()) {
+            return expr;
+        }
+        Ast.Expr rewritten = rewrite(expr.get());
+        return rewritten == expr.get() ? expr : Optional.of(rewritten);
+    }
+
+    /**
+     * Rewrites each node of a list, returning the same list if no node
+     * changed.
+     */
+    @SuppressWarnings("unchecked")
+    protected <T extends Ast> List<T> rewrite(List<T> nodes) {
+        List<T> rewritten = null;
+        for (int i = 0; i < nodes.size(); i++) {
+            T node = (T) visit(nodes.get(i));
+            if (rewritten == null && node != nodes.get(i)) {
+                rewritten = new ArrayList<>(nodes.subList(0, i));
+            }
+            if (rewritten != null) {
+                rewritten.add(node);
+            }
+        }
+        return rewritten != null ? rewritten : nodes;
+    }
+
+    /**
+     * Rewrites a list of statements. Passes that remove or replace statements
+     * override this method.
+     */
+    protected List<Ast.Stmt> rewriteStatements(List<Ast.Stmt> statements) {
+        return rewrite(statements);
+    }
+
+}
@@ -0,0 +1,1111 @@
+package plc.project;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates the bytecode of the {@code Main} class for an analyzed
+ * {@link Ast.Source} directly, as an alternative to generating Java source
+ * with the {@link Generator} and compiling it. The class has the same shape
+ * as the generated source: instance fields, a static {@code main} that exits
+ * with the result of {@code new Main().main()}, and one instance method per
+ * {@link Ast.Method}.
+ *
+ * Function and variable JVM names that refer to the JDK, such as
+ * {@code System.out.println} or {@code substring}, are resolved with
+ * reflection, choosing an overload for the argument types like javac would.
+ * The class file version is 49, which is verified by type inference and so
+ * does not need stack map frames.
+ */
+public final class BytecodeGenerator implements Ast.Visitor<Void> {
+
+    private static final String CLASS_NAME = "Main";
+
+    private final ConstantPool pool = new ConstantPool();
+    private final ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream methodBytes = new ByteArrayOutputStream();
+    private final Map<String, Class<?>> fields = new HashMap<>();
+    private int fieldCount = 0;
+    private int methodCount = 0;
+    private byte[] bytes = null;
+
+    private Code code = null;
+    private Deque<Map<String, Local>> locals = new ArrayDeque<>();
+    private int nextLocal = 0;
+    private Class<?> returnType = null;
+
+    /**
+     * Returns the class file generated by visiting an {@link Ast.Source}.
+     */
+    public byte[] getBytes() {
+        if (bytes == null) {
+            throw new IllegalStateException("No Ast.Source has been generated.");
+        }
+        return bytes;
+    }
+
+    @Override
+    public Void visit(Ast.Source ast) {
+        for (Ast.Field field : ast.getFields()) {
+            visit(field);
+        }
+
+        //constructor, which runs the field initializers in order
+        beginMethod(void.class, 1);
+        code.op(ALOAD_0, 1);
+        code.op(INVOKESPECIAL, -1);
+        code.u2(pool.methodRef("java/lang/Object", "<init>", "()V"));
+        for (Ast.Field field : ast.getFields()) {
+            if (field.getValue().isPresent()) {
+                Class<?> type = classOf(field.getVariable().getType());
+                code.op(ALOAD_0, 1);
+                value(field.getValue().get(), type);
+                code.op(PUTFIELD, -1 - size(type));
+                code.u2(pool.fieldRef(CLASS_NAME, field.getVariable().getJvmName(), descriptor(type)));
+            }
+        }
+        code.op(RETURN, 0);
+        endMethod(ACC_PUBLIC, "<init>", "()V");
+
+        //java main method
+        beginMethod(void.class, 1);
+        code.op(NEW, 1);
+        code.u2(pool.classRef(CLASS_NAME));
+        code.op(DUP, 1);
+        code.op(INVOKESPECIAL, -1);
+        code.u2(pool.methodRef(CLASS_NAME, "<init>", "()V"));
+        code.op(INVOKEVIRTUAL, 0);
+        code.u2(pool.methodRef(CLASS_NAME, "main", "()I"));
+        code.op(INVOKESTATIC, -1);
+        code.u2(pool.methodRef("java/lang/System", "exit", "(I)V"));
+        code.op(RETURN, 0);
+        endMethod(ACC_PUBLIC | ACC_STATIC, "main", "([Ljava/lang/String;)V");
+
+        for (Ast.Method method : ast.getMethods()) {
+            visit(method);
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            int thisClass = pool.classRef(CLASS_NAME);
+            int superClass = pool.classRef("java/lang/Object");
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(49);
+            pool.write(out);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.writeShort(fieldCount);
+            fieldBytes.writeTo(out);
+            out.writeShort(methodCount);
+            methodBytes.writeTo(out);
+            out.writeShort(0);
+            this.bytes = bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Field ast) {
+        Class<?> type = classOf(ast.getVariable().getType());
+        fields.put(ast.getVariable().getJvmName(), type);
+        DataOutputStream out = new DataOutputStream(fieldBytes);
+        try {
+            out.writeShort(0);
+            out.writeShort(pool.utf8(ast.getVariable().getJvmName()));
+            out.writeShort(pool.utf8(descriptor(type)));
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        fieldCount++;
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Method ast) {
+        Environment.Function function = ast.getFunction();
+        List<Class<?>> parameters = new ArrayList<>();
+        for (Environment.Type type : function.getParameterTypes()) {
+            parameters.add(classOf(type));
+        }
+        Class<?> returns = classOf(function.getReturnType());
+
+        beginMethod(returns, 1);
+        for (int i = 0; i < ast.getParameters().size(); i++) {
+            declare(ast.getParameters().get(i), parameters.get(i));
+        }
+        statements(ast.getStatements());
+        //a method without a return on every path is rejected by javac, so
+        //this is only reached by methods returning Nil
+        if (returns.isPrimitive()) {
+            constant(returns, 0);
+        } else {
+            code.op(ACONST_NULL, 1);
+        }
+        code.op(returnOpcode(returns), -size(returns));
+        endMethod(0, function.getJvmName(), descriptor(parameters, returns));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Expression ast) {
+        requireMethod();
+        Class<?> pushed = ast.getExpression() instanceof Ast.Expr.Function
+                ? call((Ast.Expr.Function) ast.getExpression())
+                : value(ast.getExpression());
+        if (pushed != void.class) {
+            code.op(size(pushed) == 2 ? POP2 : POP, -size(pushed));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Declaration ast) {
+        requireMethod();
+        Class<?> type = classOf(ast.getVariable().getType());
+        if (ast.getValue().isPresent()) {
+            value(ast.getValue().get(), type);
+        } else if (type.isPrimitive()) {
+            constant(type, 0);
+        } else {
+            code.op(ACONST_NULL, 1);
+        }
+        store(declare(ast.getVariable().getJvmName(), type));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Assignment ast) {
+        requireMethod();
+        Ast.Expr.Access receiver = (Ast.Expr.Access) ast.getReceiver();
+        String name = receiver.getVariable().getJvmName();
+        if (receiver.getReceiver().isPresent()) {
+            Class<?> owner = receiver(receiver.getReceiver().get());
+            Field field = field(owner, name);
+            value(ast.getValue(), field.getType());
+            code.op(PUTFIELD, -1 - size(field.getType()));
+            code.u2(pool.fieldRef(internalName(owner), name, descriptor(field.getType())));
+        } else if (lookup(name) != null) {
+            Local local = lookup(name);
+            value(ast.getValue(), local.type);
+            store(local);
+        } else {
+            Class<?> type = fields.get(name);
+            code.op(ALOAD_0, 1);
+            value(ast.getValue(), type);
+            code.op(PUTFIELD, -1 - size(type));
+            code.u2(pool.fieldRef(CLASS_NAME, name, descriptor(type)));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.If ast) {
+        requireMethod();
+        int otherwise = code.label();
+        int end = code.label();
+        value(ast.getCondition(), boolean.class);
+        code.branch(IFEQ, otherwise, -1);
+        statements(ast.getThenStatements());
+        code.branch(GOTO, end, 0);
+        code.mark(otherwise);
+        statements(ast.getElseStatements());
+        code.mark(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.For ast) {
+        requireMethod();
+        int start = code.label();
+        int end = code.label();
+        locals.push(new HashMap<>());
+        int previous = nextLocal;
+        try {
+            value(ast.getValue(), Iterable.class);
+            code.op(INVOKEINTERFACE, 0);
+            code.u2(pool.interfaceMethodRef("java/lang/Iterable", "iterator", "()Ljava/util/Iterator;"));
+            code.u1(1);
+            code.u1(0);
+            Local iterator = declare(" iterator", java.util.Iterator.class);
+            store(iterator);
+            Local variable = declare(ast.getName(), int.class);
+            code.mark(start);
+            load(iterator);
+            code.op(INVOKEINTERFACE, 0);
+            code.u2(pool.interfaceMethodRef("java/util/Iterator", "hasNext", "()Z"));
+            code.u1(1);
+            code.u1(0);
+            code.branch(IFEQ, end, -1);
+            load(iterator);
+            code.op(INVOKEINTERFACE, 0);
+            code.u2(pool.interfaceMethodRef("java/util/Iterator", "next", "()Ljava/lang/Object;"));
+            code.u1(1);
+            code.u1(0);
+            convert(Object.class, int.class);
+            store(variable);
+            statements(ast.getStatements());
+            code.branch(GOTO, start, 0);
+            code.mark(end);
+        } finally {
+            locals.pop();
+            nextLocal = previous;
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.While ast) {
+        requireMethod();
+        int start = code.label();
+        int end = code.label();
+        code.mark(start);
+        value(ast.getCondition(), boolean.class);
+        code.branch(IFEQ, end, -1);
+        statements(ast.getStatements());
+        code.branch(GOTO, start, 0);
+        code.mark(end);
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Stmt.Return ast) {
+        requireMethod();
+        value(ast.getValue(), returnType);
+        code.op(returnOpcode(returnType), -size(returnType));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Literal ast) {
+        requireMethod();
+        Object literal = ast.isInt() || ast.isDouble() ? null : ast.getLiteral();
+        if (ast.isInt() || literal instanceof BigInteger) {
+            constant(int.class, ast.isInt() ? ast.getInt() : ((BigInteger) literal).intValue());
+        } else if (ast.isDouble() || literal instanceof BigDecimal) {
+            double value = ast.isDouble() ? ast.getDouble() : ((BigDecimal) literal).doubleValue();
+            if (Double.doubleToRawLongBits(value) == 0L || value == 1.0) {
+                code.op(DCONST_0 + (int) value, 2);
+            } else {
+                code.op(LDC2_W, 2);
+                code.u2(pool.doubleConstant(value));
+            }
+        } else if (literal == null) {
+            code.op(ACONST_NULL, 1);
+        } else if (literal instanceof Boolean) {
+            constant(boolean.class, (Boolean) literal ? 1 : 0);
+        } else if (literal instanceof Character) {
+            constant(char.class, (Character) literal);
+        } else if (literal instanceof String) {
+            ldc(pool.string((String) literal));
+        } else {
+            throw new AssertionError("Unsupported literal: " + literal.getClass().getName() + ".");
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Group ast) {
+        requireMethod();
+        value(ast.getExpression(), classOf(ast.getType()));
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Binary ast) {
+        requireMethod();
+        String operator = ast.getOperator();
+        Class<?> type = classOf(ast.getType());
+        if (operator.equals("AND") || operator.equals("OR")) {
+            int shortCircuit = code.label();
+            int end = code.label();
+            int jump = operator.equals("AND") ? IFEQ : IFNE;
+            value(ast.getLeft(), boolean.class);
+            code.branch(jump, shortCircuit, -1);
+            value(ast.getRight(), boolean.class);
+            code.branch(jump, shortCircuit, -1);
+            constant(boolean.class, operator.equals("AND") ? 1 : 0);
+            code.branch(GOTO, end, 0);
+            code.adjust(-1);
+            code.mark(shortCircuit);
+            constant(boolean.class, operator.equals("AND") ? 0 : 1);
+            code.mark(end);
+        } else if (operator.equals("+") && type == String.class) {
+            code.op(NEW, 1);
+            code.u2(pool.classRef("java/lang/StringBuilder"));
+            code.op(DUP, 1);
+            code.op(INVOKESPECIAL, -1);
+            code.u2(pool.methodRef("java/lang/StringBuilder", "<init>", "()V"));
+            append(ast);
+            code.op(INVOKEVIRTUAL, 0);
+            code.u2(pool.methodRef("java/lang/StringBuilder", "toString", "()Ljava/lang/String;"));
+        } else if (type == boolean.class) {
+            compare(ast);
+        } else {
+            value(ast.getLeft(), type);
+            value(ast.getRight(), type);
+            int offset = operator.equals("+") ? 0 : operator.equals("-") ? 4 : operator.equals("*") ? 8 : 12;
+            if (type == int.class) {
+                code.op(IADD + offset, -1);
+            } else if (type == double.class) {
+                code.op(DADD + offset, -2);
+            } else {
+                throw new RuntimeException("Operator " + operator + " is not defined for " + type.getName() + ".");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Appends the operands of a String concatenation to the StringBuilder on
+     * the stack, flattening nested concatenations.
+     */
+    private void append(Ast.Expr expr) {
+        if (expr instanceof Ast.Expr.Binary && ((Ast.Expr.Binary) expr).getOperator().equals("+") && classOf(expr.getType()) == String.class) {
+            append(((Ast.Expr.Binary) expr).getLeft());
+            append(((Ast.Expr.Binary) expr).getRight());
+            return;
+        }
+        Class<?> type = value(expr);
+        if (type == byte.class || type == short.class) {
+            type = int.class;
+        } else if (!type.isPrimitive() && type != String.class) {
+            type = Object.class;
+        }
+        code.op(INVOKEVIRTUAL, -size(type));
+        code.u2(pool.methodRef("java/lang/StringBuilder", "append", "(" + descriptor(type) + ")Ljava/lang/StringBuilder;"));
+    }
+
+    private void compare(Ast.Expr.Binary ast) {
+        String operator = ast.getOperator();
+        Class<?> type = classOf(ast.getLeft().getType());
+        value(ast.getLeft(), type);
+        value(ast.getRight(), type);
+        int opcode;
+        int delta;
+        if (type == int.class || type == char.class || type == boolean.class) {
+            opcode = IF_ICMPEQ;
+            delta = -2;
+        } else if (type == double.class) {
+            code.op(operator.equals("<") || operator.equals("<=") ? DCMPG : DCMPL, -3);
+            opcode = IFEQ;
+            delta = -1;
+        } else if (operator.equals("==") || operator.equals("!=")) {
+            opcode = IF_ACMPEQ;
+            delta = -2;
+        } else {
+            throw new RuntimeException("Operator " + operator + " is not defined for " + type.getName() + ".");
+        }
+        //the opcodes for each comparison follow the same order: eq, ne, lt, ge, gt, le
+        List<String> order = Arrays.asList("==", "!=", "<", ">=", ">", "<=");
+        int isTrue = code.label();
+        int end = code.label();
+        code.branch(opcode + order.indexOf(operator), isTrue, delta);
+        constant(boolean.class, 0);
+        code.branch(GOTO, end, 0);
+        code.adjust(-1);
+        code.mark(isTrue);
+        constant(boolean.class, 1);
+        code.mark(end);
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Access ast) {
+        requireMethod();
+        String name = ast.getVariable().getJvmName();
+        if (ast.getReceiver().isPresent()) {
+            Class<?> owner = receiver(ast.getReceiver().get());
+            if (name.endsWith("()")) {
+                //properties such as String.length are exposed as methods
+                invoke(owner, false, method(owner, name.substring(0, name.length() - 2), new ArrayList<>(), false));
+            } else {
+                Field field = field(owner, name);
+                code.op(GETFIELD, size(field.getType()) - 1);
+                code.u2(pool.fieldRef(internalName(owner), name, descriptor(field.getType())));
+            }
+        } else if (lookup(name) != null) {
+            load(lookup(name));
+        } else {
+            Class<?> type = fields.get(name);
+            if (type == null) {
+                throw new RuntimeException("The variable " + name + " is not defined.");
+            }
+            code.op(ALOAD_0, 1);
+            code.op(GETFIELD, size(type) - 1);
+            code.u2(pool.fieldRef(CLASS_NAME, name, descriptor(type)));
+        }
+        return null;
+    }
+
+    @Override
+    public Void visit(Ast.Expr.Function ast) {
+        requireMethod();
+        Class<?> pushed = call(ast);
+        if (pushed == void.class) {
+            code.op(ACONST_NULL, 1);
+        }
+        return null;
+    }
+
+    /**
+     * Invokes a function and returns the JVM type it leaves on the stack,
+     * which may be {@code void}.
+     */
+    private Class<?> call(Ast.Expr.Function ast) {
+        Environment.Function function = ast.getFunction();
+        String name = function.getJvmName();
+        List<Class<?>> arguments = new ArrayList<>();
+        for (Ast.Expr argument : ast.getArguments()) {
+            arguments.add(classOf(argument.getType()));
+        }
+        if (ast.getReceiver().isPresent()) {
+            Class<?> owner = receiver(ast.getReceiver().get());
+            Method method = method(owner, name, arguments, false);
+            arguments(ast.getArguments(), method.getParameterTypes());
+            return invoke(owner, false, method);
+        } else if (name.indexOf('.') < 0) {
+            List<Class<?>> parameters = new ArrayList<>();
+            for (Environment.Type type : function.getParameterTypes()) {
+                parameters.add(classOf(type));
+            }
+            Class<?> returns = classOf(function.getReturnType());
+            code.op(ALOAD_0, 1);
+            arguments(ast.getArguments(), parameters.toArray(new Class<?>[0]));
+            int slots = 0;
+            for (Class<?> parameter : parameters) {
+                slots += size(parameter);
+            }
+            code.op(INVOKEVIRTUAL, size(returns) - slots - 1);
+            code.u2(pool.methodRef(CLASS_NAME, name, descriptor(parameters, returns)));
+            return returns;
+        } else {
+            //a qualified name such as System.out.println: a class, then any
+            //static and instance fields, then the method
+            String[] parts = name.split("\\.");
+            int index = parts.length - 1;
+            Class<?> owner = null;
+            while (owner == null && --index >= 0) {
+                owner = resolveClass(String.join(".", Arrays.copyOfRange(parts, 0, index + 1)));
+            }
+            if (owner == null) {
+                throw new RuntimeException("Could not resolve the function " + name + ".");
+            }
+            boolean isStatic = true;
+            for (int i = index + 1; i < parts.length - 1; i++) {
+                Field field = field(owner, parts[i]);
+                code.op(Modifier.isStatic(field.getModifiers()) ? GETSTATIC : GETFIELD, size(field.getType()) - (Modifier.isStatic(field.getModifiers()) ? 0 : 1));
+                code.u2(pool.fieldRef(internalName(owner), parts[i], descriptor(field.getType())));
+                owner = box(field.getType());
+                isStatic = false;
+            }
+            Method method = method(owner, parts[parts.length - 1], arguments, isStatic);
+            arguments(ast.getArguments(), method.getParameterTypes());
+            return invoke(owner, isStatic, method);
+        }
+    }
+
+    /**
+     * Pushes the receiver of a field or method, boxing primitives so their
+     * methods can be invoked, and returns its class.
+     */
+    private Class<?> receiver(Ast.Expr receiver) {
+        Class<?> pushed = value(receiver);
+        convert(pushed, box(pushed));
+        return box(pushed);
+    }
+
+    private void arguments(List<Ast.Expr> arguments, Class<?>[] parameters) {
+        for (int i = 0; i < arguments.size(); i++) {
+            value(arguments.get(i), parameters[i]);
+        }
+    }
+
+    private Class<?> invoke(Class<?> owner, boolean isStatic, Method method) {
+        int slots = isStatic ? 0 : 1;
+        for (Class<?> parameter : method.getParameterTypes()) {
+            slots += size(parameter);
+        }
+        int delta = size(method.getReturnType()) - slots;
+        String descriptor = descriptor(Arrays.asList(method.getParameterTypes()), method.getReturnType());
+        if (isStatic) {
+            code.op(INVOKESTATIC, delta);
+            code.u2(pool.methodRef(internalName(owner), method.getName(), descriptor));
+        } else if (owner.isInterface()) {
+            code.op(INVOKEINTERFACE, delta);
+            code.u2(pool.interfaceMethodRef(internalName(owner), method.getName(), descriptor));
+            code.u1(slots);
+            code.u1(0);
+        } else {
+            code.op(INVOKEVIRTUAL, delta);
+            code.u2(pool.methodRef(internalName(owner), method.getName(), descriptor));
+        }
+        return method.getReturnType();
+    }
+
+    /**
+     * Pushes the value of an expression and returns the JVM type it leaves
+     * on the stack.
+     */
+    private Class<?> value(Ast.Expr expr) {
+        if (expr instanceof Ast.Expr.Function) {
+            Class<?> pushed = call((Ast.Expr.Function) expr);
+            if (pushed == void.class) {
+                code.op(ACONST_NULL, 1);
+                return Void.class;
+            }
+            return pushed;
+        }
+        visit(expr);
+        return expr instanceof Ast.Expr.Access && ((Ast.Expr.Access) expr).getReceiver().isPresent()
+                ? accessType((Ast.Expr.Access) expr)
+                : classOf(expr.getType());
+    }
+
+    /**
+     * Pushes the value of an expression converted to the given type.
+     */
+    private void value(Ast.Expr expr, Class<?> type) {
+        convert(value(expr), type);
+    }
+
+    private Class<?> accessType(Ast.Expr.Access ast) {
+        Class<?> owner = box(classOf(ast.getReceiver().get().getType()));
+        String name = ast.getVariable().getJvmName();
+        if (name.endsWith("()")) {
+            return method(owner, name.substring(0, name.length() - 2), new ArrayList<>(), false).getReturnType();
+        }
+        return field(owner, name).getType();
+    }
+
+    /**
+     * Converts the value on the stack, boxing, unboxing or casting as javac
+     * would for an assignment.
+     */
+    private void convert(Class<?> from, Class<?> to) {
+        if (from == to || to == void.class) {
+            return;
+        }
+        if (from.isPrimitive() && to.isPrimitive()) {
+            if (from == int.class && to == double.class || from == char.class && to == double.class) {
+                code.op(I2D, 1);
+            } else if (from != char.class || to != int.class) {
+                throw new RuntimeException("Cannot convert " + from.getName() + " to " + to.getName() + ".");
+            }
+        } else if (from.isPrimitive()) {
+            Class<?> boxed = box(from);
+            code.op(INVOKESTATIC, 1 - size(from));
+            code.u2(pool.methodRef(internalName(boxed), "valueOf", "(" + descriptor(from) + ")" + descriptor(boxed)));
+            if (!to.isAssignableFrom(boxed)) {
+                code.op(CHECKCAST, 0);
+                code.u2(pool.classRef(internalName(to)));
+            }
+        } else if (to.isPrimitive()) {
+            Class<?> boxed = box(to);
+            if (!boxed.isAssignableFrom(from)) {
+                code.op(CHECKCAST, 0);
+                code.u2(pool.classRef(internalName(boxed)));
+            }
+            code.op(INVOKEVIRTUAL, size(to) - 1);
+            code.u2(pool.methodRef(internalName(boxed), to.getName() + "Value", "()" + descriptor(to)));
+        } else if (!to.isAssignableFrom(from) && from != Void.class) {
+            code.op(CHECKCAST, 0);
+            code.u2(pool.classRef(internalName(to)));
+        }
+    }
+
+    private void statements(List<Ast.Stmt> statements) {
+        locals.push(new HashMap<>());
+        int previous = nextLocal;
+        try {
+            for (Ast.Stmt statement : statements) {
+                visit(statement);
+            }
+        } finally {
+            locals.pop();
+            nextLocal = previous;
+        }
+    }
+
+    /**
+     * Starts the code of a method whose receiver and parameters take up the
+     * first {@code slots} local variable slots.
+     */
+    private void beginMethod(Class<?> returns, int slots) {
+        code = new Code();
+        code.maxLocals = slots;
+        locals = new ArrayDeque<>();
+        locals.push(new HashMap<>());
+        nextLocal = slots;
+        returnType = returns;
+    }
+
+    private void endMethod(int access, String name, String descriptor) {
+        byte[] instructions = code.resolve();
+        DataOutputStream out = new DataOutputStream(methodBytes);
+        try {
+            out.writeShort(access);
+            out.writeShort(pool.utf8(name));
+            out.writeShort(pool.utf8(descriptor));
+            out.writeShort(1);
+            out.writeShort(pool.utf8("Code"));
+            out.writeInt(12 + instructions.length);
+            out.writeShort(code.maxStack);
+            out.writeShort(code.maxLocals);
+            out.writeInt(instructions.length);
+            out.write(instructions);
+            out.writeShort(0);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        methodCount++;
+        code = null;
+        returnType = null;
+    }
+
+    private void requireMethod() {
+        if (code == null) {
+            throw new IllegalStateException("Statements and expressions must be generated as part of an Ast.Source.");
+        }
+    }
+
+    private Local declare(String name, Class<?> type) {
+        Local local = new Local(nextLocal, type);
+        nextLocal += size(type);
+        code.maxLocals = Math.max(code.maxLocals, nextLocal);
+        locals.peek().put(name, local);
+        return local;
+    }
+
+    private Local lookup(String name) {
+        for (Map<String, Local> scope : locals) {
+            if (scope.containsKey(name)) {
+                return scope.get(name);
+            }
+        }
+        return null;
+    }
+
+    private void load(Local local) {
+        code.op(local.type == int.class || local.type == char.class || local.type == boolean.class ? ILOAD : local.type == double.class ? DLOAD : ALOAD, size(local.type));
+        code.u1(local.slot);
+        code.maxLocals = Math.max(code.maxLocals, local.slot + size(local.type));
+    }
+
+    private void store(Local local) {
+        code.op(local.type == int.class || local.type == char.class || local.type == boolean.class ? ISTORE : local.type == double.class ? DSTORE : ASTORE, -size(local.type));
+        code.u1(local.slot);
+    }
+
+    private void constant(Class<?> type, int value) {
+        if (type == double.class) {
+            code.op(LDC2_W, 2);
+            code.u2(pool.doubleConstant(value));
+        } else if (value >= -1 && value <= 5) {
+            code.op(ICONST_0 + value, 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.op(BIPUSH, 1);
+            code.u1(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.op(SIPUSH, 1);
+            code.u2(value);
+        } else {
+            ldc(pool.integer(value));
+        }
+    }
+
+    private void ldc(int index) {
+        if (index < 256) {
+            code.op(LDC, 1);
+            code.u1(index);
+        } else {
+            code.op(LDC_W, 1);
+            code.u2(index);
+        }
+    }
+
+    private static int returnOpcode(Class<?> type) {
+        if (type == void.class) {
+            return RETURN;
+        } else if (type == double.class) {
+            return DRETURN;
+        } else if (type.isPrimitive()) {
+            return IRETURN;
+        }
+        return ARETURN;
+    }
+
+    private static int size(Class<?> type) {
+        return type == void.class ? 0 : type == double.class || type == long.class ? 2 : 1;
+    }
+
+    /**
+     * Maps a type to the class of its {@link Environment.Type#getJvmName()}.
+     */
+    private static Class<?> classOf(Environment.Type type) {
+        switch (type.getJvmName()) {
+            case "boolean":
+                return boolean.class;
+            case "int":
+                return int.class;
+            case "double":
+                return double.class;
+            case "char":
+                return char.class;
+            case "Iterable<Integer>":
+                return Iterable.class;
+            default:
+                String name = type.getJvmName();
+                Class<?> resolved = resolveClass(name.indexOf('<') < 0 ? name : name.substring(0, name.indexOf('<')));
+                if (resolved == null) {
+                    throw new RuntimeException("Unknown JVM type " + name + ".");
+                }
+                return resolved;
+        }
+    }
+
+    private static Class<?> resolveClass(String name) {
+        for (String candidate : new String[] {name, "java.lang." + name}) {
+            try {
+                return Class.forName(candidate, false, BytecodeGenerator.class.getClassLoader());
+            } catch (ClassNotFoundException ignored) {
+            }
+        }
+        return null;
+    }
+
+    private static Class<?> box(Class<?> type) {
+        if (type == int.class) {
+            return Integer.class;
+        } else if (type == double.class) {
+            return Double.class;
+        } else if (type == boolean.class) {
+            return Boolean.class;
+        } else if (type == char.class) {
+            return Character.class;
+        }
+        return type;
+    }
+
+    private static Field field(Class<?> owner, String name) {
+        try {
+            return owner.getField(name);
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("The field " + name + " is not defined on " + owner.getName() + ".");
+        }
+    }
+
+    /**
+     * Finds the public method javac would choose for the argument types,
+     * preferring exact parameter matches over widening and boxing.
+     */
+    private static Method method(Class<?> owner, String name, List<Class<?>> arguments, boolean isStatic) {
+        Method best = null;
+        int bestScore = -1;
+        for (Method method : owner.getMethods()) {
+            if (!method.getName().equals(name) || method.getParameterCount() != arguments.size()
+                    || Modifier.isStatic(method.getModifiers()) != isStatic || method.isBridge()) {
+                continue;
+            }
+            int score = 0;
+            for (int i = 0; i < arguments.size() && score >= 0; i++) {
+                Class<?> parameter = method.getParameterTypes()[i];
+                Class<?> argument = arguments.get(i);
+                if (parameter == argument) {
+                    score += 3;
+                } else if (parameter == double.class && (argument == int.class || argument == char.class)
+                        || parameter == int.class && argument == char.class) {
+                    score += 2;
+                } else if (!parameter.isPrimitive() && parameter.isAssignableFrom(box(argument))) {
+                    score += parameter == Object.class ? 0 : 1;
+                } else {
+                    score = -1;
+                }
+            }
+            if (score > bestScore) {
+                best = method;
+                bestScore = score;
+            }
+        }
+        if (best == null) {
+            throw new RuntimeException("The method " + name + "/" + arguments.size() + " is not defined on " + owner.getName() + ".");
+        }
+        return best;
+    }
+
+    private static String internalName(Class<?> type) {
+        return type.getName().replace('.', '/');
+    }
+
+    private static String descriptor(Class<?> type) {
+        if (type == void.class) {
+            return "V";
+        } else if (type == boolean.class) {
+            return "Z";
+        } else if (type == int.class) {
+            return "I";
+        } else if (type == double.class) {
+            return "D";
+        } else if (type == char.class) {
+            return "C";
+        } else if (type == long.class) {
+            return "J";
+        } else if (type == float.class) {
+            return "F";
+        } else if (type == byte.class) {
+            return "B";
+        } else if (type == short.class) {
+            return "S";
+        } else if (type.isArray()) {
+            return internalName(type);
+        }
+        return "L" + internalName(type) + ";";
+    }
+
+    private static String descriptor(List<Class<?>> parameters, Class<?> returns) {
+        StringBuilder builder = new StringBuilder("(");
+        for (Class<?> parameter : parameters) {
+            builder.append(descriptor(parameter));
+        }
+        return builder.append(')').append(descriptor(returns)).toString();
+    }
+
+    private static final class Local {
+
+        private final int slot;
+        private final Class<?> type;
+
+        private Local(int slot, Class<?> type) {
+            this.slot = slot;
+            this.type = type;
+        }
+
+    }
+
+    /**
+     * The instructions of a method, tracking the operand stack depth and
+     * patching branch offsets once all labels are marked.
+     */
+    private static final class Code {
+
+        private byte[] bytes = new byte[256];
+        private int length = 0;
+        private int stack = 0;
+        private int maxStack = 0;
+        private int maxLocals = 0;
+        private final List<Integer> labels = new ArrayList<>();
+        private final List<int[]> branches = new ArrayList<>();
+
+        private void op(int opcode, int delta) {
+            u1(opcode);
+            adjust(delta);
+        }
+
+        private void adjust(int delta) {
+            stack += delta;
+            maxStack = Math.max(maxStack, stack);
+        }
+
+        private void u1(int value) {
+            if (length == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        private void u2(int value) {
+            u1(value >> 8);
+            u1(value);
+        }
+
+        private int label() {
+            labels.add(-1);
+            return labels.size() - 1;
+        }
+
+        private void mark(int label) {
+            labels.set(label, length);
+        }
+
+        private void branch(int opcode, int label, int delta) {
+            branches.add(new int[] {length, label});
+            op(opcode, delta);
+            u2(0);
+        }
+
+        private byte[] resolve() {
+            for (int[] branch : branches) {
+                int offset = labels.get(branch[1]) - branch[0];
+                if (offset != (short) offset) {
+                    throw new RuntimeException("Method is too large to generate.");
+                }
+                bytes[branch[0] + 1] = (byte) (offset >> 8);
+                bytes[branch[0] + 2] = (byte) offset;
+            }
+            if (length > 0xFFFF) {
+                throw new RuntimeException("Method is too large to generate.");
+            }
+            return Arrays.copyOf(bytes, length);
+        }
+
+    }
+
+    private static final class ConstantPool {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> entries = new LinkedHashMap<>();
+        private int count = 1;
+
+        private int utf8(String value) {
+            return entry("U" + value, 1, 1, () -> out.writeUTF(value));
+        }
+
+        private int integer(int value) {
+            return entry("I" + value, 3, 1, () -> out.writeInt(value));
+        }
+
+        private int doubleConstant(double value) {
+            return entry("D" + Double.doubleToRawLongBits(value), 6, 2, () -> out.writeDouble(value));
+        }
+
+        private int string(String value) {
+            int utf8 = utf8(value);
+            return entry("S" + value, 8, 1, () -> out.writeShort(utf8));
+        }
+
+        private int classRef(String internalName) {
+            int name = utf8(internalName);
+            return entry("C" + internalName, 7, 1, () -> out.writeShort(name));
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            return entry("N" + name + " " + descriptor, 12, 1, () -> {
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            });
+        }
+
+        private int fieldRef(String owner, String name, String descriptor) {
+            return memberRef(9, owner, name, descriptor);
+        }
+
+        private int methodRef(String owner, String name, String descriptor) {
+            return memberRef(10, owner, name, descriptor);
+        }
+
+        private int interfaceMethodRef(String owner, String name, String descriptor) {
+            return memberRef(11, owner, name, descriptor);
+        }
+
+        private int memberRef(int tag, String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameAndType = nameAndType(name, descriptor);
+            return entry(tag + owner + "." + name + " " + descriptor, tag, 1, () -> {
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            });
+        }
+
+        private int entry(String key, int tag, int slots, Contents contents) {
+            Integer index = entries.get(key);
+            if (index != null) {
+                return index;
+            }
+            try {
+                out.writeByte(tag);
+                contents.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            entries.put(key, count);
+            count += slots;
+            if (count > 0xFFFF) {
+                throw new RuntimeException("Too many constants to generate.");
+            }
+            return count - slots;
+        }
+
+        private void write(DataOutputStream stream) throws IOException {
+            stream.writeShort(count);
+            bytes.writeTo(stream);
+        }
+
+        private interface Contents {
+
+            void write() throws IOException;
+
+        }
+
+    }
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int DCONST_0 = 0x0E;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC = 0x12;
+    private static final int LDC_W = 0x13;
+    private static final int LDC2_W = 0x14;
+    private static final int ILOAD = 0x15;
+    private static final int DLOAD = 0x18;
+    private static final int ALOAD = 0x19;
+    private static final int ALOAD_0 = 0x2A;
+    private static final int ISTORE = 0x36;
+    private static final int DSTORE = 0x39;
+    private static final int ASTORE = 0x3A;
+    private static final int POP = 0x57;
+    private static final int POP2 = 0x58;
+    private static final int DUP = 0x59;
+    private static final int IADD = 0x60;
+    private static final int DADD = 0x63;
+    private static final int I2D = 0x87;
+    private static final int DCMPL = 0x97;
+    private static final int DCMPG = 0x98;
+    private static final int IFEQ = 0x99;
+    private static final int IFNE = 0x9A;
+    private static final int IF_ICMPEQ = 0x9F;
+    private static final int IF_ACMPEQ = 0xA5;
+    private static final int GOTO = 0xA7;
+    private static final int IRETURN = 0xAC;
+    private static final int DRETURN = 0xAF;
+    private static final int ARETURN = 0xB0;
+    private static final int RETURN = 0xB1;
+    private static final int GETSTATIC = 0xB2;
+    private static final int GETFIELD = 0xB4;
+    private static final int PUTFIELD = 0xB5;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int INVOKESTATIC = 0xB8;
+    private static final int INVOKEINTERFACE = 0xB9;
+    private static final int NEW = 0xBB;
+    private static final int CHECKCAST = 0xC0;
+
+}
@@ -0,0 +1,190 @@
+package plc.project;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Folds binary expressions and groups whose operands are literals into a
+ * single literal, using the types assigned by the {@link Analyzer}. This pass
+ * runs between the {@link Analyzer} and the {@link Generator} and evaluates
+ * expressions exactly as the generated Java would at runtime: {@code Integer}
+ * arithmetic wraps on overflow, {@code Decimal} arithmetic is done in
+ * {@code double}, and concatenation converts operands as Java strings do.
+ * Expressions that would fail or produce a value without a literal form,
+ * such as division by zero, are left alone.
+ */
+public final class ConstantFolder extends AstRewriter {
+
+    private int folded = 0;
+
+    /**
+     * Returns the number of binary expressions folded so far.
+     */
+    public int getFolded() {
+        return folded;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Group ast) {
+        Ast.Expr expression = rewrite(ast.getExpression());
+        //a negative number keeps its parentheses, as in (-1).compare(x)
+        if (expression instanceof Ast.Expr.Literal && !isNegative((Ast.Expr.Literal) expression)) {
+            return expression;
+        }
+        if (expression == ast.getExpression()) {
+            return ast;
+        }
+        Ast.Expr.Group group = at(ast, new Ast.Expr.Group(expression));
+        group.setType(ast.getType());
+        return group;
+    }
+
+    @Override
+    public Ast visit(Ast.Expr.Binary ast) {
+        Ast.Expr.Binary binary = (Ast.Expr.Binary) super.visit(ast);
+        if (!(binary.getLeft() instanceof Ast.Expr.Literal) || !(binary.getRight() instanceof Ast.Expr.Literal)) {
+            return binary;
+        }
+        Ast.Expr.Literal left = (Ast.Expr.Literal) binary.getLeft();
+        Ast.Expr.Literal right = (Ast.Expr.Literal) binary.getRight();
+        Object value = fold(binary.getOperator(), binary.getType(), left, right);
+        if (value == null) {
+            return binary;
+        }
+        folded++;
+        Ast.Expr.Literal literal = at(binary, value instanceof Integer ? Ast.Expr.Literal.ofInteger((Integer) value)
+                : value instanceof Double ? Ast.Expr.Literal.ofDecimal((Double) value) : new Ast.Expr.Literal(value));
+        literal.setType(binary.getType());
+        return literal;
+    }
+
+    /**
+     * Returns the value of the operation, or {@code null} if it can't be
+     * folded. Numbers are returned as an {@link Integer} or {@link Double}.
+     */
+    private static Object fold(String operator, Environment.Type type, Ast.Expr.Literal left, Ast.Expr.Literal right) {
+        Integer li = integer(left);
+        Integer ri = integer(right);
+        Double ld = decimal(left);
+        Double rd = decimal(right);
+        if (type.equals(Environment.Type.STRING) && operator.equals("+")) {
+            return string(left) + string(right);
+        } else if (operator.equals("AND") || operator.equals("OR")) {
+            Object l = left.getLiteral();
+            Object r = right.getLiteral();
+            if (l instanceof Boolean && r instanceof Boolean) {
+                return operator.equals("AND") ? (Boolean) l && (Boolean) r : (Boolean) l || (Boolean) r;
+            }
+        } else if (type.equals(Environment.Type.INTEGER) && li != null && ri != null) {
+            int a = li;
+            int b = ri;
+            switch (operator) {
+                case "+":
+                    return a + b;
+                case "-":
+                    return a - b;
+                case "*":
+                    return a * b;
+                case "/":
+                    return b == 0 ? null : a / b;
+            }
+        } else if (type.equals(Environment.Type.DECIMAL) && ld != null && rd != null) {
+            double a = ld;
+            double b = rd;
+            double result;
+            switch (operator) {
+                case "+":
+                    result = a + b;
+                    break;
+                case "-":
+                    result = a - b;
+                    break;
+                case "*":
+                    result = a * b;
+                    break;
+                case "/":
+                    result = a / b;
+                    break;
+                default:
+                    return null;
+            }
+            //negative zero has no literal form, and infinity and NaN have none in Java
+            if (Double.isInfinite(result) || Double.isNaN(result) || Double.doubleToRawLongBits(result) == Long.MIN_VALUE) {
+                return null;
+            }
+            return result;
+        } else if (type.equals(Environment.Type.BOOLEAN)) {
+            int comparison;
+            if (li != null && ri != null) {
+                comparison = Integer.compare(li, ri);
+            } else if (ld != null && rd != null) {
+                double a = ld;
+                double b = rd;
+                comparison = a < b ? -1 : a > b ? 1 : 0;
+            } else if (left.getLiteral() instanceof Character && right.getLiteral() instanceof Character) {
+                comparison = Character.compare((Character) left.getLiteral(), (Character) right.getLiteral());
+            } else {
+                //String comparisons are by reference in the generated Java
+                return null;
+            }
+            switch (operator) {
+                case "<":
+                    return comparison < 0;
+                case "<=":
+                    return comparison <= 0;
+                case ">":
+                    return comparison > 0;
+                case ">=":
+                    return comparison >= 0;
+                case "==":
+                    return comparison == 0;
+                case "!=":
+                    return comparison != 0;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Converts a literal to a string the way Java string concatenation does.
+     */
+    private static String string(Ast.Expr.Literal literal) {
+        Double decimal = decimal(literal);
+        if (decimal != null) {
+            return Double.toString(decimal);
+        }
+        Integer integer = integer(literal);
+        return integer != null ? Integer.toString(integer) : String.valueOf(literal.getLiteral());
+    }
+
+    /**
+     * Returns the value of an {@code Integer} literal in either form, or
+     * {@code null} if it isn't one.
+     */
+    private static Integer integer(Ast.Expr.Literal literal) {
+        if (literal.isInt()) {
+            return literal.getInt();
+        }
+        Object value = literal.isDouble() ? null : literal.getLiteral();
+        return value instanceof BigInteger ? ((BigInteger) value).intValue() : null;
+    }
+
+    /**
+     * Returns the value of a {@code Decimal} literal in either form, or
+     * {@code null} if it isn't one.
+     */
+    private static Double decimal(Ast.Expr.Literal literal) {
+        if (literal.isDouble()) {
+            return literal.getDouble();
+        }
+        Object value = literal.isInt() ? null : literal.getLiteral();
+        return value instanceof BigDecimal ? ((BigDecimal) value).doubleValue() : null;
+    }
+
+    private static boolean isNegative(Ast.Expr.Literal literal) {
+        Integer integer = integer(literal);
+        Double decimal = decimal(literal);
+        return integer != null && integer < 0 || decimal != null && decimal < 0;
+    }
+
+}
@@ -0,0 +1,165 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Removes statements that can never run from an analyzed AST: statements
+ * after a {@code RETURN}, the untaken branch of an {@code IF} with a literal
+ * condition, and {@code WHILE FALSE} loops. The taken branch of a constant
+ * {@code IF} is inlined into the enclosing block unless it declares a
+ * variable, since the names would then leak into the enclosing scope.
+ * Running the {@link ConstantFolder} first exposes more constant conditions.
+ */
+public final class DeadCodeEliminator extends AstRewriter {
+
+    private int removed = 0;
+
+    /**
+     * Returns the number of AST nodes removed so far, counting every node of
+     * a removed subtree.
+     */
+    public int getRemovedNodes() {
+        return removed;
+    }
+
+    @Override
+    public Ast visit(Ast.Stmt.If ast) {
+        Ast.Stmt.If rewritten = (Ast.Stmt.If) super.visit(ast);
+        //the generator only emits an else branch after a non-empty then branch, so the branches are swapped
+        if (rewritten.getThenStatements().isEmpty() && !ast.getThenStatements().isEmpty() && !rewritten.getElseStatements().isEmpty()) {
+            return at(ast, new Ast.Stmt.If(negate(rewritten.getCondition()), rewritten.getElseStatements(), new ArrayList<>()));
+        }
+        return rewritten;
+    }
+
+    /**
+     * Returns the condition compared to {@code FALSE}, in parentheses so
+     * that the comparison applies to the whole condition when generated.
+     */
+    private static Ast.Expr negate(Ast.Expr condition) {
+        if (!(condition instanceof Ast.Expr.Group)) {
+            Ast.Expr.Group group = new Ast.Expr.Group(condition);
+            group.setType(Environment.Type.BOOLEAN);
+            condition = group;
+        }
+        Ast.Expr.Literal literal = new Ast.Expr.Literal(Boolean.FALSE);
+        literal.setType(Environment.Type.BOOLEAN);
+        Ast.Expr.Binary binary = new Ast.Expr.Binary("==", condition, literal);
+        binary.setType(Environment.Type.BOOLEAN);
+        return binary;
+    }
+
+    @Override
+    protected List<Ast.Stmt> rewriteStatements(List<Ast.Stmt> statements) {
+        List<Ast.Stmt> rewritten = null;
+        for (int i = 0; i < statements.size(); i++) {
+            Ast.Stmt statement = statements.get(i);
+            Boolean condition = condition(statement);
+            List<Ast.Stmt> replacement = null;
+            if (condition != null && !condition && statement instanceof Ast.Stmt.While) {
+                replacement = new ArrayList<>();
+                removed += count(statement);
+            } else if (condition != null && statement instanceof Ast.Stmt.If) {
+                Ast.Stmt.If ast = (Ast.Stmt.If) statement;
+                List<Ast.Stmt> taken = rewriteStatements(condition ? ast.getThenStatements() : ast.getElseStatements());
+                removed += count(condition ? ast.getElseStatements() : ast.getThenStatements());
+                if (taken.stream().noneMatch(stmt -> stmt instanceof Ast.Stmt.Declaration)) {
+                    replacement = taken;
+                    removed += 1 + count(ast.getCondition());
+                } else {
+                    //keeps the branch in its own block, but without the untaken branch
+                    Ast.Expr.Literal literal = new Ast.Expr.Literal(Boolean.TRUE);
+                    literal.setType(Environment.Type.BOOLEAN);
+                    replacement = new ArrayList<>();
+                    replacement.add(at(ast, new Ast.Stmt.If(literal, taken, new ArrayList<>())));
+                }
+            } else {
+                Ast.Stmt node = (Ast.Stmt) visit(statement);
+                if (node != statement) {
+                    replacement = new ArrayList<>();
+                    replacement.add(node);
+                }
+            }
+            if (rewritten == null && replacement != null) {
+                rewritten = new ArrayList<>(statements.subList(0, i));
+            }
+            if (rewritten != null) {
+                rewritten.addAll(replacement != null ? replacement : statements.subList(i, i + 1));
+            }
+            List<Ast.Stmt> block = rewritten != null ? rewritten : statements.subList(0, i + 1);
+            if (!block.isEmpty() && block.get(block.size() - 1) instanceof Ast.Stmt.Return && i + 1 < statements.size()) {
+                List<Ast.Stmt> unreachable = statements.subList(i + 1, statements.size());
+                removed += count(unreachable);
+                if (rewritten == null) {
+                    rewritten = new ArrayList<>(block);
+                }
+                break;
+            }
+        }
+        return rewritten != null ? rewritten : statements;
+    }
+
+    /**
+     * Returns the value of the literal condition of an {@code IF} or
+     * {@code WHILE}, or {@code null} if it isn't one.
+     */
+    private static Boolean condition(Ast.Stmt statement) {
+        Ast.Expr condition;
+        if (statement instanceof Ast.Stmt.If) {
+            condition = ((Ast.Stmt.If) statement).getCondition();
+        } else if (statement instanceof Ast.Stmt.While) {
+            condition = ((Ast.Stmt.While) statement).getCondition();
+        } else {
+            return null;
+        }
+        while (condition instanceof Ast.Expr.Group) {
+            condition = ((Ast.Expr.Group) condition).getExpression();
+        }
+        if (condition instanceof Ast.Expr.Literal && ((Ast.Expr.Literal) condition).getLiteral() instanceof Boolean) {
+            return (Boolean) ((Ast.Expr.Literal) condition).getLiteral();
+        }
+        return null;
+    }
+
+    private static int count(List<? extends Ast> nodes) {
+        int count = 0;
+        for (Ast node : nodes) {
+            count += count(node);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of nodes in the subtree rooted at the given node.
+     */
+    private static int count(Ast ast) {
+        if (ast instanceof Ast.Stmt.Expression) {
+            return 1 + count(((Ast.Stmt.Expression) ast).getExpression());
+        } else if (ast instanceof Ast.Stmt.Declaration) {
+            return 1 + ((Ast.Stmt.Declaration) ast).getValue().map(DeadCodeEliminator::count).orElse(0);
+        } else if (ast instanceof Ast.Stmt.Assignment) {
+            return 1 + count(((Ast.Stmt.Assignment) ast).getReceiver()) + count(((Ast.Stmt.Assignment) ast).getValue());
+        } else if (ast instanceof Ast.Stmt.If) {
+            Ast.Stmt.If stmt = (Ast.Stmt.If) ast;
+            return 1 + count(stmt.getCondition()) + count(stmt.getThenStatements()) + count(stmt.getElseStatements());
+        } else if (ast instanceof Ast.Stmt.For) {
+            return 1 + count(((Ast.Stmt.For) ast).getValue()) + count(((Ast.Stmt.For) ast).getStatements());
+        } else if (ast instanceof Ast.Stmt.While) {
+            return 1 + count(((Ast.Stmt.While) ast).getCondition()) + count(((Ast.Stmt.While) ast).getStatements());
+        } else if (ast instanceof Ast.Stmt.Return) {
+            return 1 + count(((Ast.Stmt.Return) ast).getValue());
+        } else if (ast instanceof Ast.Expr.Group) {
+            return 1 + count(((Ast.Expr.Group) ast).getExpression());
+        } else if (ast instanceof Ast.Expr.Binary) {
+            return 1 + count(((Ast.Expr.Binary) ast).getLeft()) + count(((Ast.Expr.Binary) ast).getRight());
+        } else if (ast instanceof Ast.Expr.Access) {
+            return 1 + ((Ast.Expr.Access) ast).getReceiver().map(DeadCodeEliminator::count).orElse(0);
+        } else if (ast instanceof Ast.Expr.Function) {
+            Ast.Expr.Function function = (Ast.Expr.Function) ast;
+            return 1 + function.getReceiver().map(DeadCodeEliminator::count).orElse(0) + count(function.getArguments());
+        }
+        return 1;
+    }
+
+}
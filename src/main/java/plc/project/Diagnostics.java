@@ -0,0 +1,77 @@
+package plc.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Collects the errors of a {@link Parser} or {@link Analyzer} run, so that a
+ * run can report every error instead of stopping at the first one. Messages
+ * are suppliers and are only built when they are read, since most rejected
+ * programs are only counted or reported by code and position.
+ */
+public final class Diagnostics {
+
+    public enum Code {
+        SYNTAX,
+        UNDEFINED_VARIABLE,
+        UNDEFINED_FUNCTION,
+        TYPE_MISMATCH,
+        INVALID
+    }
+
+    public static final class Diagnostic {
+
+        private final int index;
+        private final Code code;
+        private final Supplier<String> message;
+
+        private Diagnostic(int index, Code code, Supplier<String> message) {
+            this.index = index;
+            this.code = code;
+            this.message = message;
+        }
+
+        /**
+         * Returns the index of the token the error was found at, or
+         * {@code -1} if the node has no index.
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        public Code getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message.get();
+        }
+
+        @Override
+        public String toString() {
+            return code + "@" + index + ": " + getMessage();
+        }
+
+    }
+
+    private final List<Diagnostic> diagnostics = new ArrayList<>();
+
+    public void report(int index, Code code, Supplier<String> message) {
+        diagnostics.add(new Diagnostic(index, code, message));
+    }
+
+    public List<Diagnostic> getDiagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    public boolean isEmpty() {
+        return diagnostics.isEmpty();
+    }
+
+    public int size() {
+        return diagnostics.size();
+    }
+
+}
@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 public final class Environment {
 
@@ -186,6 +187,11 @@ public final class Environment {
                     type.equals(((Variable) obj).type);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, jvmName, type);
+        }
+
         @Override
         public String toString() {
             return "Variable{" +
@@ -250,6 +256,11 @@ public final class Environment {
                     returnType.equals(((Function) obj).returnType);
         }
 
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, jvmName, parameterTypes, returnType);
+        }
+
         @Override
         public String toString() {
             return "Function{" +
@@ -0,0 +1,835 @@
+package plc.project;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * An AST stored in parallel arrays instead of as a graph of {@link Ast}
+ * objects. A node is an {@code int}, and its kind, children, symbol, analysis
+ * and token index are read from the arrays by that node, so a pass walks the
+ * tree without loading a node object, its lists and its optionals. The
+ * children of a node are stored together in one array, in order, with
+ * {@code -1} for an absent optional child. The symbol of a node is an index
+ * into a pool of names, operators and literal values, which are interned, so
+ * repeated names and literals are stored once. The children and symbol of
+ * each kind are:
+ *
+ * <pre>
+ * SOURCE       fields, then methods; symbol is the number of fields
+ * FIELD        value or -1; symbol is the name, followed by the type name
+ * METHOD       statements; symbol is the name, followed by the parameters,
+ *              the parameter type names and the return type name or null
+ * EXPRESSION   expression
+ * DECLARATION  value or -1; symbol is the name, followed by the type name or null
+ * ASSIGNMENT   receiver, value
+ * IF           condition, then statements, else statements; symbol is the
+ *              number of then statements
+ * FOR          value, statements; symbol is the name
+ * WHILE        condition, statements
+ * RETURN       value
+ * LITERAL      symbol is the value
+ * INTEGER      an Integer literal stored as an int; symbol is the value itself
+ * DECIMAL      a Decimal literal stored as a double; symbol is the value
+ * GROUP        expression
+ * BINARY       left, right; symbol is the operator
+ * ACCESS       receiver or -1; symbol is the name
+ * FUNCTION     receiver or -1, arguments; symbol is the name
+ * </pre>
+ *
+ * The analysis of a node is the type, variable or function assigned by the
+ * {@link Analyzer}, as an index into a table of them, or {@code -1}.
+ *
+ * A tree can be written to a file with {@link #write(Path)} and read back
+ * with {@link #map(Path)}, which skips the {@link Parser} and the
+ * {@link Analyzer} for a source that hasn't changed. The file is the arrays
+ * as they are stored here, followed by the pool and the analyses, so reading
+ * it is a copy of each array out of the mapped file. Types are stored by
+ * name and read back as the registered {@link Environment.Type}, and
+ * variables and functions by their names and types, so the generators
+ * produce the same code from the tree that was read. The statements of a
+ * method of a tree that was read are only converted to {@link Ast} objects
+ * when they are first accessed.
+ */
+public final class FlatAst {
+
+    public enum Kind {
+        SOURCE,
+        FIELD,
+        METHOD,
+        EXPRESSION,
+        DECLARATION,
+        ASSIGNMENT,
+        IF,
+        FOR,
+        WHILE,
+        RETURN,
+        LITERAL,
+        INTEGER,
+        DECIMAL,
+        GROUP,
+        BINARY,
+        ACCESS,
+        FUNCTION
+    }
+
+    private static final Kind[] KINDS = Kind.values();
+
+    private static final int MAGIC = 0x504C4341;
+    private static final int VERSION = 1;
+
+    private static final byte NULL_VALUE = 0;
+    private static final byte STRING_VALUE = 1;
+    private static final byte INTEGER_VALUE = 2;
+    private static final byte DECIMAL_VALUE = 3;
+    private static final byte DOUBLE_VALUE = 4;
+    private static final byte BOOLEAN_VALUE = 5;
+    private static final byte CHARACTER_VALUE = 6;
+    private static final byte NAMES_VALUE = 7;
+
+    private static final byte TYPE_ANALYSIS = 0;
+    private static final byte VARIABLE_ANALYSIS = 1;
+    private static final byte FUNCTION_ANALYSIS = 2;
+
+    private byte[] kinds = new byte[64];
+    private int[] starts = new int[65];
+    private int[] symbols = new int[64];
+    private int[] analyses = null;
+    private int[] indices = new int[64];
+    private int size = 0;
+
+    private int[] children = new int[64];
+    private int childrenSize = 0;
+
+    private final ArrayList<Object> pool = new ArrayList<>();
+    private final List<Object> analysisTable = new ArrayList<>();
+
+    private int root;
+    private boolean lazy = false;
+
+    private FlatAst() {}
+
+    /**
+     * Returns the tree rooted at the given node, keeping the types,
+     * variables and functions assigned by the {@link Analyzer} and the token
+     * indices.
+     */
+    public static FlatAst of(Ast ast) {
+        FlatAst flat = new FlatAst();
+        flat.root = new Builder(flat).visit(ast);
+        flat.trim();
+        return flat;
+    }
+
+    /**
+     * Returns the tree as {@link Ast} objects, equal to the one it was
+     * created from.
+     */
+    public Ast toAst() {
+        return toAst(root);
+    }
+
+    /**
+     * Writes the tree to the file, replacing it if it exists. The types of
+     * the analyses must be registered with {@link Environment}.
+     */
+    public void write(Path path) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeInt(childrenSize);
+            out.writeInt(root);
+            out.writeBoolean(analyses != null);
+            writeInts(out, starts, size + 1);
+            writeInts(out, symbols, size);
+            writeInts(out, indices, size);
+            if (analyses != null) {
+                writeInts(out, analyses, size);
+            }
+            writeInts(out, children, childrenSize);
+            out.write(kinds, 0, size);
+            out.writeInt(pool.size());
+            for (Object value : pool) {
+                writeValue(out, value);
+            }
+            out.writeInt(analysisTable.size());
+            for (Object analysis : analysisTable) {
+                writeAnalysis(out, analysis);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads a tree written by {@link #write(Path)} from the file, which is
+     * memory mapped.
+     */
+    public static FlatAst map(Path path) {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (buffer.remaining() < 8 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IllegalArgumentException("Not an AST snapshot: " + path + ".");
+        }
+        FlatAst flat = new FlatAst();
+        flat.lazy = true;
+        flat.size = buffer.getInt();
+        flat.childrenSize = buffer.getInt();
+        flat.root = buffer.getInt();
+        boolean analyzed = buffer.get() != 0;
+        flat.starts = readInts(buffer, flat.size + 1);
+        flat.symbols = readInts(buffer, flat.size);
+        flat.indices = readInts(buffer, flat.size);
+        flat.analyses = analyzed ? readInts(buffer, flat.size) : null;
+        flat.children = readInts(buffer, flat.childrenSize);
+        flat.kinds = new byte[flat.size];
+        buffer.get(flat.kinds);
+        int poolSize = buffer.getInt();
+        flat.pool.ensureCapacity(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            flat.pool.add(readValue(buffer));
+        }
+        int analysisSize = buffer.getInt();
+        for (int i = 0; i < analysisSize; i++) {
+            flat.analysisTable.add(readAnalysis(buffer));
+        }
+        return flat;
+    }
+
+    public int getRoot() {
+        return root;
+    }
+
+    /**
+     * Returns the number of nodes in the tree.
+     */
+    public int size() {
+        return size;
+    }
+
+    public Kind getKind(int node) {
+        return KINDS[kinds[node]];
+    }
+
+    /**
+     * Returns the number of children of the node. The children of each node
+     * are added after those of the node before it, so the count is where the
+     * children of the next node start.
+     */
+    public int getChildCount(int node) {
+        return starts[node + 1] - starts[node];
+    }
+
+    /**
+     * Returns the child at the given position, or {@code -1} for an absent
+     * optional child.
+     */
+    public int getChild(int node, int child) {
+        if (child < 0 || child >= getChildCount(node)) {
+            throw new IndexOutOfBoundsException("Child " + child + " of a node with " + getChildCount(node) + " children.");
+        }
+        return children[starts[node] + child];
+    }
+
+    /**
+     * Returns the symbol of the node, which is an index into the pool, or
+     * for {@code SOURCE}, {@code IF} and {@code INTEGER} nodes the number or
+     * value described by {@link FlatAst}.
+     */
+    public int getSymbol(int node) {
+        return symbols[node];
+    }
+
+    /**
+     * Returns the entry of the pool at the symbol of the node plus the
+     * offset.
+     */
+    public Object getPooled(int node, int offset) {
+        return pool.get(symbols[node] + offset);
+    }
+
+    /**
+     * Returns the name of a {@code FIELD}, {@code METHOD},
+     * {@code DECLARATION}, {@code FOR}, {@code ACCESS} or {@code FUNCTION}
+     * node, or the operator of a {@code BINARY} node.
+     */
+    public String getName(int node) {
+        return (String) getPooled(node, 0);
+    }
+
+    /**
+     * Returns the value of a literal node, as an {@link Ast.Expr.Literal}
+     * would.
+     */
+    public Object getLiteral(int node) {
+        switch (getKind(node)) {
+            case LITERAL:
+                return getPooled(node, 0);
+            case INTEGER:
+                return BigInteger.valueOf(symbols[node]);
+            case DECIMAL:
+                return Ast.Expr.Literal.ofDecimal((Double) getPooled(node, 0)).getLiteral();
+            default:
+                throw new IllegalArgumentException("Node " + node + " is a " + getKind(node) + ", not a literal.");
+        }
+    }
+
+    /**
+     * Returns the type of an expression node, as {@link Ast.Expr#getType()}
+     * would.
+     */
+    public Environment.Type getType(int node) {
+        return Analysis.getType(getAnalysis(node));
+    }
+
+    /**
+     * Returns the type, variable or function assigned to the node by the
+     * {@link Analyzer}, or {@code null}.
+     */
+    public Object getAnalysis(int node) {
+        return analyses == null || analyses[node] < 0 ? null : analysisTable.get(analyses[node]);
+    }
+
+    public int getIndex(int node) {
+        return indices[node];
+    }
+
+    /**
+     * Returns the subtree rooted at the node as {@link Ast} objects.
+     */
+    public Ast toAst(int node) {
+        Ast ast;
+        switch (getKind(node)) {
+            case SOURCE:
+                ast = new Ast.Source(toList(node, 0, symbols[node]), toList(node, symbols[node], getChildCount(node)));
+                break;
+            case FIELD:
+                ast = new Ast.Field(getName(node), (String) getPooled(node, 1), toOptional(getChild(node, 0)));
+                break;
+            case METHOD: {
+                @SuppressWarnings("unchecked")
+                List<String> parameters = (List<String>) getPooled(node, 1);
+                @SuppressWarnings("unchecked")
+                List<String> parameterTypeNames = (List<String>) getPooled(node, 2);
+                List<Ast.Stmt> statements = lazy ? new Statements(node) : toList(node, 0, getChildCount(node));
+                ast = new Ast.Method(getName(node), parameters, parameterTypeNames, Optional.ofNullable((String) getPooled(node, 3)), statements);
+                break;
+            }
+            case EXPRESSION:
+                ast = new Ast.Stmt.Expression((Ast.Expr) toAst(getChild(node, 0)));
+                break;
+            case DECLARATION:
+                ast = new Ast.Stmt.Declaration(getName(node), Optional.ofNullable((String) getPooled(node, 1)), toOptional(getChild(node, 0)));
+                break;
+            case ASSIGNMENT:
+                ast = new Ast.Stmt.Assignment((Ast.Expr) toAst(getChild(node, 0)), (Ast.Expr) toAst(getChild(node, 1)));
+                break;
+            case IF:
+                ast = new Ast.Stmt.If((Ast.Expr) toAst(getChild(node, 0)), toList(node, 1, 1 + symbols[node]), toList(node, 1 + symbols[node], getChildCount(node)));
+                break;
+            case FOR:
+                ast = new Ast.Stmt.For(getName(node), (Ast.Expr) toAst(getChild(node, 0)), toList(node, 1, getChildCount(node)));
+                break;
+            case WHILE:
+                ast = new Ast.Stmt.While((Ast.Expr) toAst(getChild(node, 0)), toList(node, 1, getChildCount(node)));
+                break;
+            case RETURN:
+                ast = new Ast.Stmt.Return((Ast.Expr) toAst(getChild(node, 0)));
+                break;
+            case LITERAL:
+                ast = new Ast.Expr.Literal(getPooled(node, 0));
+                break;
+            case INTEGER:
+                ast = Ast.Expr.Literal.ofInteger(symbols[node]);
+                break;
+            case DECIMAL:
+                ast = Ast.Expr.Literal.ofDecimal((Double) getPooled(node, 0));
+                break;
+            case GROUP:
+                ast = new Ast.Expr.Group((Ast.Expr) toAst(getChild(node, 0)));
+                break;
+            case BINARY:
+                ast = new Ast.Expr.Binary(getName(node), (Ast.Expr) toAst(getChild(node, 0)), (Ast.Expr) toAst(getChild(node, 1)));
+                break;
+            case ACCESS:
+                ast = new Ast.Expr.Access(toOptional(getChild(node, 0)), getName(node));
+                break;
+            case FUNCTION:
+                ast = new Ast.Expr.Function(toOptional(getChild(node, 0)), getName(node), toList(node, 1, getChildCount(node)));
+                break;
+            default:
+                throw new AssertionError("Unimplemented kind: " + getKind(node) + ".");
+        }
+        ast.setIndex(indices[node]);
+        Ast.setAnalysis(ast, getAnalysis(node));
+        return ast;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Ast> List<T> toList(int node, int from, int to) {
+        List<T> list = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            list.add((T) toAst(getChild(node, i)));
+        }
+        return list;
+    }
+
+    private Optional<Ast.Expr> toOptional(int node) {
+        return node < 0 ? Optional.empty() : Optional.of((Ast.Expr) toAst(node));
+    }
+
+    /**
+     * Shrinks the arrays to the nodes they hold, once the tree is built.
+     */
+    private void trim() {
+        kinds = Arrays.copyOf(kinds, size);
+        starts = Arrays.copyOf(starts, size + 1);
+        symbols = Arrays.copyOf(symbols, size);
+        if (analyses != null) {
+            analyses = Arrays.copyOf(analyses, size);
+        }
+        indices = Arrays.copyOf(indices, size);
+        children = Arrays.copyOf(children, childrenSize);
+        pool.trimToSize();
+    }
+
+    /**
+     * Adds a node with space for the given number of children, which are
+     * filled in with {@link #setChild(int, int, int)} as they are added. The
+     * analyses are only stored once a node has one, so that a tree which
+     * hasn't been analyzed doesn't store them at all.
+     */
+    private int add(Kind kind, int childCount, int symbol, int analysis, Ast ast) {
+        if (size == kinds.length) {
+            kinds = Arrays.copyOf(kinds, size * 2);
+            starts = Arrays.copyOf(starts, size * 2 + 1);
+            symbols = Arrays.copyOf(symbols, size * 2);
+            indices = Arrays.copyOf(indices, size * 2);
+        }
+        if (childrenSize + childCount > children.length) {
+            children = Arrays.copyOf(children, Math.max(childrenSize + childCount, children.length * 2));
+        }
+        if (analysis >= 0 && analyses == null) {
+            analyses = new int[kinds.length];
+            Arrays.fill(analyses, -1);
+        } else if (analyses != null && analyses.length < kinds.length) {
+            int length = analyses.length;
+            analyses = Arrays.copyOf(analyses, kinds.length);
+            Arrays.fill(analyses, length, analyses.length, -1);
+        }
+        int node = size++;
+        kinds[node] = (byte) kind.ordinal();
+        starts[node] = childrenSize;
+        symbols[node] = symbol;
+        if (analyses != null) {
+            analyses[node] = analysis;
+        }
+        indices[node] = ast.getIndex();
+        childrenSize += childCount;
+        starts[size] = childrenSize;
+        return node;
+    }
+
+    private void setChild(int node, int child, int value) {
+        children[starts[node] + child] = value;
+    }
+
+    /**
+     * Adds values to the end of the pool without interning them, and returns
+     * the index of the first.
+     */
+    private int append(Object... values) {
+        int index = pool.size();
+        pool.addAll(Arrays.asList(values));
+        return index;
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4 * length);
+        buffer.asIntBuffer().put(values, 0, length);
+        out.write(buffer.array());
+    }
+
+    private static int[] readInts(ByteBuffer buffer, int length) {
+        int[] values = new int[length];
+        buffer.asIntBuffer().get(values);
+        buffer.position(buffer.position() + 4 * length);
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes an entry of the pool, which is a name, a literal value, a list
+     * of names or {@code null}, after a tag for its class.
+     */
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_VALUE);
+        } else if (value instanceof String) {
+            out.writeByte(STRING_VALUE);
+            writeString(out, (String) value);
+        } else if (value instanceof BigInteger) {
+            out.writeByte(INTEGER_VALUE);
+            writeString(out, value.toString());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL_VALUE);
+            writeString(out, value.toString());
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE_VALUE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN_VALUE);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHARACTER_VALUE);
+            out.writeChar((Character) value);
+        } else if (value instanceof List) {
+            out.writeByte(NAMES_VALUE);
+            out.writeInt(((List<?>) value).size());
+            for (Object name : (List<?>) value) {
+                writeString(out, (String) name);
+            }
+        } else {
+            throw new IllegalArgumentException("Unexpected value " + value + " of class " + value.getClass().getName() + ".");
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case NULL_VALUE:
+                return null;
+            case STRING_VALUE:
+                return readString(buffer);
+            case INTEGER_VALUE:
+                return new BigInteger(readString(buffer));
+            case DECIMAL_VALUE:
+                return new BigDecimal(readString(buffer));
+            case DOUBLE_VALUE:
+                return buffer.getDouble();
+            case BOOLEAN_VALUE:
+                return buffer.get() != 0;
+            case CHARACTER_VALUE:
+                return buffer.getChar();
+            case NAMES_VALUE: {
+                int count = buffer.getInt();
+                if (count == 0) {
+                    return Collections.emptyList();
+                }
+                List<String> names = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    names.add(readString(buffer));
+                }
+                return Collections.unmodifiableList(names);
+            }
+            default:
+                throw new IllegalArgumentException("Invalid value tag " + tag + ".");
+        }
+    }
+
+    /**
+     * Writes a type by its name, a variable by its name, JVM name and type,
+     * and a function by its name, JVM name, parameter types and return type.
+     */
+    private static void writeAnalysis(DataOutputStream out, Object analysis) throws IOException {
+        if (analysis instanceof Environment.Type) {
+            out.writeByte(TYPE_ANALYSIS);
+            writeType(out, (Environment.Type) analysis);
+        } else if (analysis instanceof Environment.Variable) {
+            Environment.Variable variable = (Environment.Variable) analysis;
+            out.writeByte(VARIABLE_ANALYSIS);
+            writeString(out, variable.getName());
+            writeString(out, variable.getJvmName());
+            writeType(out, variable.getType());
+        } else {
+            Environment.Function function = (Environment.Function) analysis;
+            out.writeByte(FUNCTION_ANALYSIS);
+            writeString(out, function.getName());
+            writeString(out, function.getJvmName());
+            out.writeInt(function.getParameterTypes().size());
+            for (Environment.Type type : function.getParameterTypes()) {
+                writeType(out, type);
+            }
+            writeType(out, function.getReturnType());
+        }
+    }
+
+    /**
+     * Returns the analysis written by {@link #writeAnalysis}. Variables hold
+     * {@link Environment#NIL} and functions return it, as those defined by
+     * the {@link Analyzer} do.
+     */
+    private static Object readAnalysis(ByteBuffer buffer) {
+        byte tag = buffer.get();
+        switch (tag) {
+            case TYPE_ANALYSIS:
+                return readType(buffer);
+            case VARIABLE_ANALYSIS:
+                return new Environment.Variable(readString(buffer), readString(buffer), readType(buffer), Environment.NIL);
+            case FUNCTION_ANALYSIS: {
+                String name = readString(buffer);
+                String jvmName = readString(buffer);
+                List<Environment.Type> parameterTypes = new ArrayList<>();
+                for (int i = buffer.getInt(); i > 0; i--) {
+                    parameterTypes.add(readType(buffer));
+                }
+                return new Environment.Function(name, jvmName, parameterTypes, readType(buffer), args -> Environment.NIL);
+            }
+            default:
+                throw new IllegalArgumentException("Invalid analysis tag " + tag + ".");
+        }
+    }
+
+    private static void writeType(DataOutputStream out, Environment.Type type) throws IOException {
+        if (Environment.getType(type.getName()) != type) {
+            throw new IllegalArgumentException("Type " + type.getName() + " is not the registered type of that name.");
+        }
+        writeString(out, type.getName());
+    }
+
+    private static Environment.Type readType(ByteBuffer buffer) {
+        return Environment.getType(readString(buffer));
+    }
+
+    /**
+     * The statements of a method of a tree that was read, each of which is
+     * converted to an {@link Ast} the first time it is accessed.
+     */
+    private final class Statements extends AbstractList<Ast.Stmt> {
+
+        private final int node;
+        private final Ast.Stmt[] statements;
+
+        private Statements(int node) {
+            this.node = node;
+            this.statements = new Ast.Stmt[getChildCount(node)];
+        }
+
+        @Override
+        public Ast.Stmt get(int index) {
+            if (statements[index] == null) {
+                statements[index] = (Ast.Stmt) toAst(getChild(node, index));
+            }
+            return statements[index];
+        }
+
+        @Override
+        public int size() {
+            return statements.length;
+        }
+
+    }
+
+    /**
+     * Adds the nodes of an {@link Ast} to a tree in pre-order, returning the
+     * node of each.
+     */
+    private static final class Builder implements Ast.Visitor<Integer> {
+
+        private final FlatAst flat;
+        private final Map<Object, Integer> interned = new HashMap<>();
+        private final Map<Object, Integer> analyses = new IdentityHashMap<>();
+
+        private Builder(FlatAst flat) {
+            this.flat = flat;
+        }
+
+        @Override
+        public Integer visit(Ast.Source ast) {
+            int node = add(Kind.SOURCE, ast.getFields().size() + ast.getMethods().size(), ast.getFields().size(), ast);
+            addAll(node, 0, ast.getFields());
+            addAll(node, ast.getFields().size(), ast.getMethods());
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Field ast) {
+            int node = add(Kind.FIELD, 1, flat.append(ast.getName(), ast.getTypeName()), ast);
+            flat.setChild(node, 0, add(ast.getValue()));
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Method ast) {
+            int symbol = flat.append(ast.getName(), copy(ast.getParameters()), copy(ast.getParameterTypeNames()), ast.getReturnTypeName().orElse(null));
+            int node = add(Kind.METHOD, ast.getStatements().size(), symbol, ast);
+            addAll(node, 0, ast.getStatements());
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Expression ast) {
+            int node = add(Kind.EXPRESSION, 1, -1, ast);
+            flat.setChild(node, 0, visit(ast.getExpression()));
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Declaration ast) {
+            int node = add(Kind.DECLARATION, 1, flat.append(ast.getName(), ast.getTypeName().orElse(null)), ast);
+            flat.setChild(node, 0, add(ast.getValue()));
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Assignment ast) {
+            int node = add(Kind.ASSIGNMENT, 2, -1, ast);
+            flat.setChild(node, 0, visit(ast.getReceiver()));
+            flat.setChild(node, 1, visit(ast.getValue()));
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.If ast) {
+            int thenCount = ast.getThenStatements().size();
+            int node = add(Kind.IF, 1 + thenCount + ast.getElseStatements().size(), thenCount, ast);
+            flat.setChild(node, 0, visit(ast.getCondition()));
+            addAll(node, 1, ast.getThenStatements());
+            addAll(node, 1 + thenCount, ast.getElseStatements());
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.For ast) {
+            int node = add(Kind.FOR, 1 + ast.getStatements().size(), intern(ast.getName()), ast);
+            flat.setChild(node, 0, visit(ast.getValue()));
+            addAll(node, 1, ast.getStatements());
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.While ast) {
+            int node = add(Kind.WHILE, 1 + ast.getStatements().size(), -1, ast);
+            flat.setChild(node, 0, visit(ast.getCondition()));
+            addAll(node, 1, ast.getStatements());
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Stmt.Return ast) {
+            int node = add(Kind.RETURN, 1, -1, ast);
+            flat.setChild(node, 0, visit(ast.getValue()));
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Literal ast) {
+            if (ast.isInt()) {
+                return add(Kind.INTEGER, 0, ast.getInt(), ast);
+            } else if (ast.isDouble()) {
+                return add(Kind.DECIMAL, 0, intern(ast.getDouble()), ast);
+            }
+            return add(Kind.LITERAL, 0, intern(ast.getLiteral()), ast);
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Group ast) {
+            int node = add(Kind.GROUP, 1, -1, ast);
+            flat.setChild(node, 0, visit(ast.getExpression()));
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Binary ast) {
+            int node = add(Kind.BINARY, 2, intern(ast.getOperator()), ast);
+            flat.setChild(node, 0, visit(ast.getLeft()));
+            flat.setChild(node, 1, visit(ast.getRight()));
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Access ast) {
+            int node = add(Kind.ACCESS, 1, intern(ast.getName()), ast);
+            flat.setChild(node, 0, add(ast.getReceiver()));
+            return node;
+        }
+
+        @Override
+        public Integer visit(Ast.Expr.Function ast) {
+            int node = add(Kind.FUNCTION, 1 + ast.getArguments().size(), intern(ast.getName()), ast);
+            flat.setChild(node, 0, add(ast.getReceiver()));
+            addAll(node, 1, ast.getArguments());
+            return node;
+        }
+
+        private int add(Kind kind, int childCount, int symbol, Ast ast) {
+            Object analysis = Ast.analysis(ast);
+            int id = -1;
+            if (analysis != null) {
+                id = analyses.computeIfAbsent(analysis, key -> {
+                    flat.analysisTable.add(key);
+                    return flat.analysisTable.size() - 1;
+                });
+            }
+            return flat.add(kind, childCount, symbol, id, ast);
+        }
+
+        /**
+         * Returns the index of the value in the pool, adding it if it isn't
+         * already there.
+         */
+        private int intern(Object value) {
+            Integer index = interned.get(value);
+            if (index == null) {
+                index = flat.pool.size();
+                flat.pool.add(value);
+                interned.put(value, index);
+            }
+            return index;
+        }
+
+        /**
+         * Returns an unmodifiable copy of a list of names, which is shared if
+         * it is empty.
+         */
+        private static List<String> copy(List<String> names) {
+            return names.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(names));
+        }
+
+        private int add(Optional<Ast.Expr> ast) {
+            return ast.isPresent() ? visit(ast.get()) : -1;
+        }
+
+        private void addAll(int node, int from, List<? extends Ast> asts) {
+            for (int i = 0; i < asts.size(); i++) {
+                flat.setChild(node, from + i, visit(asts.get(i)));
+            }
+        }
+
+    }
+
+}
@@ -1,43 +1,185 @@
 package plc.project;
 
 import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public final class Generator implements Ast.Visitor<Void> {
 
-    private final PrintWriter writer;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    /**
+     * The number of operands from which a String concatenation is emitted as
+     * a single {@link StringBuilder} chain.
+     */
+    private static final int CONCAT_OPERANDS = 3;
+
+    /**
+     * Line separators followed by the indentation for each level, so that a
+     * newline is a single write instead of one per level.
+     */
+    private static final String[] NEWLINES = new String[16];
+
+    static {
+        StringBuilder builder = new StringBuilder(LINE_SEPARATOR);
+        for (int i = 0; i < NEWLINES.length; i++) {
+            NEWLINES[i] = builder.toString();
+            builder.append("    ");
+        }
+    }
+
+    private final Sink sink;
+    private final ForkJoinPool pool;
+    private final Cache cache;
+    private final char[] digits = new char[11];
+    private SourceMap sourceMap;
+    private Analysis analysis;
     private int indent = 0;
+    private int line = 1;
+    private int column = 0;
 
     public Generator(PrintWriter writer) {
-        this.writer = writer;
+        this(new Sink.Writer(writer));
     }
 
-    private void print(Object... objects) {
-        for (Object object : objects) {
-            if (object instanceof Ast) {
-                visit((Ast) object);
-            } else {
-                writer.write(object.toString());
-            }
+    public Generator(Sink sink) {
+        this(sink, null);
+    }
+
+    /**
+     * Creates a generator that emits the methods of an {@link Ast.Source} in
+     * parallel on the given pool, each into its own buffer. The buffers are
+     * joined in declaration order, so the output is identical to sequential
+     * generation. A {@code null} pool generates sequentially.
+     */
+    public Generator(Sink sink, ForkJoinPool pool) {
+        this(sink, pool, null);
+    }
+
+    /**
+     * Creates a generator that splices methods which are structurally equal
+     * to a previously generated method (including their resolved function)
+     * in from the given cache instead of visiting them again. Either the pool
+     * or the cache may be {@code null}.
+     */
+    public Generator(Sink sink, ForkJoinPool pool, Cache cache) {
+        this.sink = sink;
+        this.pool = pool;
+        this.cache = cache;
+    }
+
+    /**
+     * Records the position of each node with a token index in the given map
+     * as it is emitted. Methods are then generated sequentially, since the
+     * positions of methods generated on a pool or taken from the cache are
+     * not known.
+     */
+    public void setSourceMap(SourceMap sourceMap) {
+        this.sourceMap = sourceMap;
+    }
+
+    /**
+     * Reads the types, variables and functions from the given analysis
+     * instead of from the nodes. The cache is not used, since it compares
+     * methods by the functions assigned to their nodes.
+     */
+    public void setAnalysis(Analysis analysis) {
+        this.analysis = analysis;
+    }
+
+    private Environment.Type getType(Ast.Expr ast) {
+        return analysis == null ? ast.getType() : analysis.getType(ast);
+    }
+
+    private Environment.Variable getVariable(Ast ast) {
+        if(analysis != null) {
+            return analysis.getVariable(ast);
+        }
+        else if(ast instanceof Ast.Field) {
+            return ((Ast.Field) ast).getVariable();
         }
+        else if(ast instanceof Ast.Stmt.Declaration) {
+            return ((Ast.Stmt.Declaration) ast).getVariable();
+        }
+        return ((Ast.Expr.Access) ast).getVariable();
+    }
+
+    private Environment.Function getFunction(Ast.Expr.Function ast) {
+        return analysis == null ? ast.getFunction() : analysis.getFunction(ast);
+    }
+
+    private void emit(String string) {
+        sink.write(string);
+        column += string.length();
+    }
+
+    private void emit(char c) {
+        sink.write(c);
+        column++;
+    }
+
+    /**
+     * Writes the decimal representation of {@code value} without creating an
+     * intermediate {@link String}.
+     */
+    private void emitInt(int value) {
+        if (value == Integer.MIN_VALUE) {
+            emit("-2147483648");
+            return;
+        }
+        int position = digits.length;
+        boolean negative = value < 0;
+        if (negative) {
+            value = -value;
+        }
+        do {
+            digits[--position] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (negative) {
+            digits[--position] = '-';
+        }
+        sink.write(digits, position, digits.length - position);
+        column += digits.length - position;
+    }
+
+    private void emitNode(Ast ast) {
+        if (sourceMap != null && ast.getIndex() >= 0) {
+            sourceMap.add(line, column, ast.getIndex());
+        }
+        visit(ast);
     }
 
     private void newline(int indent) {
-        writer.println();
-        for (int i = 0; i < indent; i++) {
-            writer.write("    ");
+        if (indent < NEWLINES.length) {
+            sink.write(NEWLINES[indent]);
+        } else {
+            sink.write(NEWLINES[NEWLINES.length - 1]);
+            for (int i = NEWLINES.length - 1; i < indent; i++) {
+                sink.write("    ");
+            }
         }
+        line++;
+        column = 4 * indent;
     }
 
     @Override
     public Void visit(Ast.Source ast) {
         //class header
-        print("public class Main {");
+        emit("public class Main {");
         newline(0);
 
         newline(++indent);
         //source fields
         for(int i = 0; i < ast.getFields().size(); i++){
-            print(ast.getFields().get(i));
+            emitNode(ast.getFields().get(i));
 
             if(i < ast.getFields().size()-1){
                 newline(indent);
@@ -50,18 +192,24 @@ public final class Generator implements Ast.Visitor<Void> {
         }
 
         //java main method
-        print("public static void main(String[] args) {");
+        emit("public static void main(String[] args) {");
         newline(++indent);
-        print("System.exit(new Main().main());");
+        emit("System.exit(new Main().main());");
         newline(--indent);
-        print("}");
+        emit('}');
 
         newline(0);
         newline(indent);
 
         //source methods
+        String[] methods = sourceMap == null && (pool != null || cache != null && analysis == null) ? generate(ast.getMethods()) : null;
         for(int i = 0; i < ast.getMethods().size(); i++){
-            print(ast.getMethods().get(i));
+            if(methods != null) {
+                emit(methods[i]);
+            }
+            else {
+                emitNode(ast.getMethods().get(i));
+            }
             newline(0);
 
             if(i < ast.getMethods().size()-1){
@@ -72,19 +220,66 @@ public final class Generator implements Ast.Visitor<Void> {
 
 
         newline(--indent);
-        print("}");
+        emit('}');
 
         return null;
     }
 
+    /**
+     * Generates the text of each method, taking it from the cache when
+     * possible and otherwise generating it with its own generator at the
+     * current indentation level, on the pool if there is one.
+     */
+    private String[] generate(List<Ast.Method> methods) {
+        String[] texts = new String[methods.size()];
+        List<ForkJoinTask<String>> tasks = new ArrayList<>(methods.size());
+        //each method is fingerprinted once, for both the lookup and the insertion
+        long[] fingerprints = cache != null && analysis == null ? new long[methods.size()] : null;
+        for (int i = 0; i < methods.size(); i++) {
+            Ast.Method method = methods.get(i);
+            if (fingerprints != null) {
+                fingerprints[i] = Cache.fingerprint(method);
+                texts[i] = cache.get(fingerprints[i]);
+            }
+            tasks.add(texts[i] == null && pool != null ? pool.submit(() -> generate(method, indent, analysis)) : null);
+            if (texts[i] == null && pool == null) {
+                texts[i] = generate(method, indent, analysis);
+                if (fingerprints != null) {
+                    cache.put(fingerprints[i], texts[i]);
+                }
+            }
+        }
+        for (int i = 0; i < methods.size(); i++) {
+            if (tasks.get(i) != null) {
+                texts[i] = tasks.get(i).join();
+                if (fingerprints != null) {
+                    cache.put(fingerprints[i], texts[i]);
+                }
+            }
+        }
+        return texts;
+    }
+
+    private static String generate(Ast.Method method, int indent, Analysis analysis) {
+        Sink.Builder buffer = new Sink.Builder();
+        Generator generator = new Generator(buffer);
+        generator.indent = indent;
+        generator.analysis = analysis;
+        generator.visit(method);
+        return buffer.toString();
+    }
+
     @Override
     public Void visit(Ast.Field ast) {
-        print(ast.getVariable().getType().getJvmName(), " ", ast.getVariable().getJvmName());
+        emit(getVariable(ast).getType().getJvmName());
+        emit(' ');
+        emit(getVariable(ast).getJvmName());
 
         if(ast.getValue().isPresent()) {
-            print(" = ", ast.getValue().get());
+            emit(" = ");
+            emitNode(ast.getValue().get());
         }
-        print(";");
+        emit(';');
 
         return null;
     }
@@ -133,22 +328,27 @@ public final class Generator implements Ast.Visitor<Void> {
             returnType = "Void";
         }
 
-        print(returnType, " ", ast.getName(), "(");
+        emit(returnType);
+        emit(' ');
+        emit(ast.getName());
+        emit('(');
 
         for(int i = 0; i < ast.getParameterTypeNames().size(); i++){
             if(i > 0){
-                print(", ");
+                emit(", ");
             }
 
-            print(getJVMTypeFromString(ast.getParameterTypeNames().get(i)), " ", ast.getParameters().get(i));
+            emit(getJVMTypeFromString(ast.getParameterTypeNames().get(i)));
+            emit(' ');
+            emit(ast.getParameters().get(i));
         }
 
-        print(") {");
+        emit(") {");
         if(!ast.getStatements().isEmpty()){
             //indent and print statements
             newline(++indent);
             for(int i = 0; i < ast.getStatements().size(); i++){
-                print(ast.getStatements().get(i));
+                emitNode(ast.getStatements().get(i));
                 if(i < ast.getStatements().size() - 1){
                     newline(indent);
                 }
@@ -156,38 +356,47 @@ public final class Generator implements Ast.Visitor<Void> {
             newline(--indent);
         }
 
-        print("}");
+        emit('}');
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Stmt.Expression ast) {
-        print(ast.getExpression(), ";");
+        emitNode(ast.getExpression());
+        emit(';');
         return null;
     }
 
     @Override
     public Void visit(Ast.Stmt.Declaration ast) {
-        print(ast.getVariable().getType().getJvmName(), " ", ast.getVariable().getJvmName());
+        emit(getVariable(ast).getType().getJvmName());
+        emit(' ');
+        emit(getVariable(ast).getJvmName());
 
         if(ast.getValue().isPresent()) {
-            print(" = ", ast.getValue().get());
+            emit(" = ");
+            emitNode(ast.getValue().get());
         }
-        print(";");
+        emit(';');
 
         return null;
     }
 
     @Override
     public Void visit(Ast.Stmt.Assignment ast) {
-        print(ast.getReceiver(), " = ", ast.getValue(), ";");
+        emitNode(ast.getReceiver());
+        emit(" = ");
+        emitNode(ast.getValue());
+        emit(';');
         return null;
     }
 
     @Override
     public Void visit(Ast.Stmt.If ast) {
-        print("if (", ast.getCondition(), ") {");
+        emit("if (");
+        emitNode(ast.getCondition());
+        emit(") {");
 
         if(!ast.getThenStatements().isEmpty()) {
             newline(++indent);
@@ -195,30 +404,34 @@ public final class Generator implements Ast.Visitor<Void> {
                 if(i != 0) {
                     newline(indent);
                 }
-                print(ast.getThenStatements().get(i));
+                emitNode(ast.getThenStatements().get(i));
             }
             newline(--indent);
         }
-        print("}");
+        emit('}');
 
         if(!ast.getThenStatements().isEmpty() && !ast.getElseStatements().isEmpty()) {
-            print(" else {");
+            emit(" else {");
             newline(++indent);
             for(int i = 0; i < ast.getElseStatements().size(); i++) {
                 if(i != 0) {
                     newline(indent);
                 }
-                print(ast.getElseStatements().get(i));
+                emitNode(ast.getElseStatements().get(i));
             }
             newline(--indent);
-            print("}");
+            emit('}');
         }
         return null;
     }
 
     @Override
     public Void visit(Ast.Stmt.For ast) {
-        print("for (int ", ast.getName(), " : ", ast.getValue(), ") {");
+        emit("for (int ");
+        emit(ast.getName());
+        emit(" : ");
+        emitNode(ast.getValue());
+        emit(") {");
 
         if(!ast.getStatements().isEmpty()) {
             newline(++indent);
@@ -226,17 +439,19 @@ public final class Generator implements Ast.Visitor<Void> {
                 if(i != 0) {
                     newline(indent);
                 }
-                print(ast.getStatements().get(i));
+                emitNode(ast.getStatements().get(i));
             }
             newline(--indent);
         }
-        print("}");
+        emit('}');
         return null;
     }
 
     @Override
     public Void visit(Ast.Stmt.While ast) {
-        print("while (", ast.getCondition(), ") {");
+        emit("while (");
+        emitNode(ast.getCondition());
+        emit(") {");
 
         if(!ast.getStatements().isEmpty()) {
             newline(++indent);
@@ -244,80 +459,509 @@ public final class Generator implements Ast.Visitor<Void> {
                 if(i != 0) {
                     newline(indent);
                 }
-                print(ast.getStatements().get(i));
+                emitNode(ast.getStatements().get(i));
             }
             newline(--indent);
         }
-        print("}");
+        emit('}');
         return null;
     }
 
     @Override
     public Void visit(Ast.Stmt.Return ast) {
-        print("return ", ast.getValue(), ";");
+        emit("return ");
+        emitNode(ast.getValue());
+        emit(';');
         return null;
     }
 
     @Override
     public Void visit(Ast.Expr.Literal ast) {
-        if(ast.getType().equals(Environment.Type.STRING)) {
-            print("\"", ast.getLiteral(), "\"");
+        if(ast.isInt()) {
+            emitInt(ast.getInt());
+            return null;
+        }
+        else if(ast.isDouble()) {
+            emit(ast.getDecimalText());
+            return null;
+        }
+        Object literal = ast.getLiteral();
+        if(getType(ast).equals(Environment.Type.STRING)) {
+            emit('"');
+            emit((String) literal);
+            emit('"');
         }
-        else if(ast.getType().equals(Environment.Type.CHARACTER)) {
-            print("\'", ast.getLiteral(), "\'");
+        else if(getType(ast).equals(Environment.Type.CHARACTER)) {
+            emit('\'');
+            emit((char) (Character) literal);
+            emit('\'');
+        }
+        else if(literal instanceof BigInteger && ((BigInteger) literal).bitLength() < 32) {
+            emitInt(((BigInteger) literal).intValue());
+        }
+        else if(literal instanceof Boolean) {
+            emit((Boolean) literal ? "true" : "false");
+        }
+        else if(literal == null) {
+            emit("null");
         }
         else {
-            print(ast.getLiteral());
+            //BigDecimal caches its string form, so this only allocates once per literal
+            emit(literal.toString());
         }
         return null;
     }
 
     @Override
     public Void visit(Ast.Expr.Group ast) {
-        print("(", ast.getExpression(), ")");
+        emit('(');
+        emitNode(ast.getExpression());
+        emit(')');
         return null;
     }
 
     @Override
     public Void visit(Ast.Expr.Binary ast) {
-        print(ast.getLeft());
+        if(isConcat(ast) && operands(ast) >= CONCAT_OPERANDS) {
+            //a single presized builder, instead of one per parenthesized chain
+            emit("new StringBuilder(");
+            emitInt(capacity(ast));
+            emit(')');
+            emitAppends(ast);
+            emit(".toString()");
+            return null;
+        }
+        emitNode(ast.getLeft());
         if(ast.getOperator().equals("AND")) {
-            print(" && ");
+            emit(" && ");
         }
         else if(ast.getOperator().equals("OR")) {
-            print(" || ");
+            emit(" || ");
         }
         else {
-            print(" ", ast.getOperator(), " ");
+            emit(' ');
+            emit(ast.getOperator());
+            emit(' ');
         }
-        print(ast.getRight());
+        emitNode(ast.getRight());
         return null;
     }
 
+    /**
+     * Returns whether the expression is a String concatenation, possibly in
+     * parentheses. Concatenation is associative, so the operands of nested
+     * concatenations can be appended in order to a single builder.
+     */
+    private boolean isConcat(Ast.Expr expr) {
+        while(expr instanceof Ast.Expr.Group) {
+            expr = ((Ast.Expr.Group) expr).getExpression();
+        }
+        return expr instanceof Ast.Expr.Binary
+                && ((Ast.Expr.Binary) expr).getOperator().equals("+")
+                && getType(expr).equals(Environment.Type.STRING);
+    }
+
+    private static Ast.Expr.Binary unwrapConcat(Ast.Expr expr) {
+        while(expr instanceof Ast.Expr.Group) {
+            expr = ((Ast.Expr.Group) expr).getExpression();
+        }
+        return (Ast.Expr.Binary) expr;
+    }
+
+    private int operands(Ast.Expr expr) {
+        if(!isConcat(expr)) {
+            return 1;
+        }
+        Ast.Expr.Binary binary = unwrapConcat(expr);
+        return operands(binary.getLeft()) + operands(binary.getRight());
+    }
+
+    /**
+     * Estimates the length of a concatenation from its literal operands,
+     * allowing 16 characters for every other operand.
+     */
+    private int capacity(Ast.Expr expr) {
+        if(isConcat(expr)) {
+            Ast.Expr.Binary binary = unwrapConcat(expr);
+            return capacity(binary.getLeft()) + capacity(binary.getRight());
+        }
+        else if(isObject(expr) && ((Ast.Expr.Literal) expr).getLiteral() instanceof String) {
+            return ((String) ((Ast.Expr.Literal) expr).getLiteral()).length();
+        }
+        else if(isObject(expr) && ((Ast.Expr.Literal) expr).getLiteral() instanceof Character) {
+            return 1;
+        }
+        return 16;
+    }
+
+    /**
+     * Returns {@code true} if the expression is a literal which is not held as
+     * a primitive, so that reading its value does not box a number.
+     */
+    private static boolean isObject(Ast.Expr expr) {
+        return expr instanceof Ast.Expr.Literal && !((Ast.Expr.Literal) expr).isInt() && !((Ast.Expr.Literal) expr).isDouble();
+    }
+
+    private void emitAppends(Ast.Expr expr) {
+        if(isConcat(expr)) {
+            Ast.Expr.Binary binary = unwrapConcat(expr);
+            emitAppends(binary.getLeft());
+            emitAppends(binary.getRight());
+            return;
+        }
+        emit(".append(");
+        if(isObject(expr) && ((Ast.Expr.Literal) expr).getLiteral() == null) {
+            //append(null) is ambiguous between the overloads
+            emit("(Object) null");
+        }
+        else {
+            emitNode(expr);
+        }
+        emit(')');
+    }
+
     @Override
     public Void visit(Ast.Expr.Access ast) {
         if(ast.getReceiver().isPresent()) {
-            print(ast.getReceiver().get(), ".");
+            emitNode(ast.getReceiver().get());
+            emit('.');
         }
-        print(ast.getVariable().getJvmName());
+        emit(getVariable(ast).getJvmName());
         return null;
     }
 
     @Override
     public Void visit(Ast.Expr.Function ast) {
         if(ast.getReceiver().isPresent()) {
-            print(ast.getReceiver().get(), ".");
+            emitNode(ast.getReceiver().get());
+            emit('.');
         }
 
-        print(ast.getFunction().getJvmName(), "(");
+        emit(getFunction(ast).getJvmName());
+        emit('(');
         for(int i = 0; i < ast.getArguments().size(); i++) {
             if(i != 0) {
-                print(", ");
+                emit(", ");
             }
-            print(ast.getArguments().get(i));
+            emitNode(ast.getArguments().get(i));
         }
-        print(")");
+        emit(')');
         return null;
     }
 
-}
\ No newline at end of file
+    /**
+     * A cache from methods to their generated text, evicting the least
+     * recently used entries once the cached text exceeds a number of
+     * characters. Methods are keyed by a 64-bit fingerprint of everything
+     * their text depends on, including the resolved
+     * {@link Environment.Function}, so a method is only spliced in if it would
+     * generate the same text, barring a fingerprint collision. The cache
+     * holds no nodes and may be shared between generators.
+     */
+    public static final class Cache {
+
+        private final long capacity;
+        private final Map<Long, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long size = 0;
+        private long hits = 0;
+        private long misses = 0;
+
+        /**
+         * Creates a cache holding at most {@code capacity} characters of
+         * generated text.
+         */
+        public Cache(long capacity) {
+            this.capacity = capacity;
+        }
+
+        /**
+         * Returns the fingerprint the cache keys the method by, computed in
+         * one pass over the method without allocating.
+         */
+        public static long fingerprint(Ast.Method method) {
+            Fingerprint fingerprint = new Fingerprint();
+            fingerprint.visit(method);
+            return fingerprint.hash;
+        }
+
+        public String get(Ast.Method method) {
+            return get(fingerprint(method));
+        }
+
+        public synchronized String get(long fingerprint) {
+            String text = entries.get(fingerprint);
+            if (text != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            return text;
+        }
+
+        public void put(Ast.Method method, String text) {
+            put(fingerprint(method), text);
+        }
+
+        public synchronized void put(long fingerprint, String text) {
+            String previous = entries.put(fingerprint, text);
+            size += text.length() - (previous != null ? previous.length() : 0);
+            Iterator<String> iterator = entries.values().iterator();
+            while (size > capacity && iterator.hasNext()) {
+                size -= iterator.next().length();
+                iterator.remove();
+            }
+        }
+
+        public synchronized long getHits() {
+            return hits;
+        }
+
+        public synchronized long getMisses() {
+            return misses;
+        }
+
+        /**
+         * Returns the number of characters of generated text in the cache.
+         */
+        public synchronized long size() {
+            return size;
+        }
+
+        public synchronized void clear() {
+            entries.clear();
+            size = 0;
+        }
+
+    }
+
+    /**
+     * Hashes the structure of a tree, its names, operators and literal
+     * values, and the types, variables and functions assigned to it into 64
+     * bits. Each node adds a tag for its kind and the number of its children,
+     * so that differently shaped trees with the same contents differ, and
+     * primitive literals are hashed by value rather than through
+     * {@link Ast.Expr.Literal#getLiteral()}.
+     */
+    private static final class Fingerprint implements Ast.Visitor<Void> {
+
+        private long hash = 0;
+
+        private void mix(long value) {
+            hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+        }
+
+        private void mix(String string) {
+            if (string == null) {
+                mix(-1);
+                return;
+            }
+            mix(string.length());
+            for (int i = 0; i < string.length(); i++) {
+                mix(string.charAt(i));
+            }
+        }
+
+        private void mix(Environment.Type type) {
+            if (type == null) {
+                mix(-1);
+                return;
+            }
+            mix(type.getName());
+            mix(type.getJvmName());
+        }
+
+        /**
+         * Adds the type, variable or function assigned to the node, if any.
+         */
+        private void mixAnalysis(Ast ast) {
+            Object analysis = Ast.analysis(ast);
+            if (analysis instanceof Environment.Type) {
+                mix(1);
+                mix((Environment.Type) analysis);
+            } else if (analysis instanceof Environment.Variable) {
+                Environment.Variable variable = (Environment.Variable) analysis;
+                mix(2);
+                mix(variable.getName());
+                mix(variable.getJvmName());
+                mix(variable.getType());
+            } else if (analysis instanceof Environment.Function) {
+                Environment.Function function = (Environment.Function) analysis;
+                mix(3);
+                mix(function.getName());
+                mix(function.getJvmName());
+                mix(function.getParameterTypes().size());
+                for (Environment.Type type : function.getParameterTypes()) {
+                    mix(type);
+                }
+                mix(function.getReturnType());
+            } else {
+                mix(0);
+            }
+        }
+
+        private void mixAll(List<? extends Ast> asts) {
+            mix(asts.size());
+            for (Ast ast : asts) {
+                visit(ast);
+            }
+        }
+
+        private void mixNames(List<String> names) {
+            mix(names.size());
+            for (String name : names) {
+                mix(name);
+            }
+        }
+
+        private void mixOptional(Optional<Ast.Expr> ast) {
+            mix(ast.isPresent() ? 1 : 0);
+            ast.ifPresent(this::visit);
+        }
+
+        @Override
+        public Void visit(Ast.Source ast) {
+            mix(100);
+            mixAll(ast.getFields());
+            mixAll(ast.getMethods());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Field ast) {
+            mix(101);
+            mix(ast.getName());
+            mix(ast.getTypeName());
+            mixOptional(ast.getValue());
+            mixAnalysis(ast);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Method ast) {
+            mix(102);
+            mix(ast.getName());
+            mixNames(ast.getParameters());
+            mixNames(ast.getParameterTypeNames());
+            mix(ast.getReturnTypeName().orElse(null));
+            mixAll(ast.getStatements());
+            mixAnalysis(ast);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Expression ast) {
+            mix(103);
+            visit(ast.getExpression());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Declaration ast) {
+            mix(104);
+            mix(ast.getName());
+            mix(ast.getTypeName().orElse(null));
+            mixOptional(ast.getValue());
+            mixAnalysis(ast);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Assignment ast) {
+            mix(105);
+            visit(ast.getReceiver());
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.If ast) {
+            mix(106);
+            visit(ast.getCondition());
+            mixAll(ast.getThenStatements());
+            mixAll(ast.getElseStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.For ast) {
+            mix(107);
+            mix(ast.getName());
+            visit(ast.getValue());
+            mixAll(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.While ast) {
+            mix(108);
+            visit(ast.getCondition());
+            mixAll(ast.getStatements());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Stmt.Return ast) {
+            mix(109);
+            visit(ast.getValue());
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Literal ast) {
+            if (ast.isInt()) {
+                mix(110);
+                mix(ast.getInt());
+            } else if (ast.isDouble()) {
+                mix(111);
+                mix(Double.doubleToLongBits(ast.getDouble()));
+            } else {
+                Object literal = ast.getLiteral();
+                mix(112);
+                mix(literal == null ? null : literal.getClass().getName());
+                mix(literal == null ? null : literal.toString());
+            }
+            mixAnalysis(ast);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Group ast) {
+            mix(113);
+            visit(ast.getExpression());
+            mixAnalysis(ast);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Binary ast) {
+            mix(114);
+            mix(ast.getOperator());
+            visit(ast.getLeft());
+            visit(ast.getRight());
+            mixAnalysis(ast);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Access ast) {
+            mix(115);
+            mixOptional(ast.getReceiver());
+            mix(ast.getName());
+            mixAnalysis(ast);
+            return null;
+        }
+
+        @Override
+        public Void visit(Ast.Expr.Function ast) {
+            mix(116);
+            mixOptional(ast.getReceiver());
+            mix(ast.getName());
+            mixAll(ast.getArguments());
+            mixAnalysis(ast);
+            return null;
+        }
+
+    }
+
+}
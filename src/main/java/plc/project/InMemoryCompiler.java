@@ -0,0 +1,157 @@
+package plc.project;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles the Java source emitted by the {@link Generator} with the system
+ * {@link JavaCompiler}, entirely in memory. The compiler and its file manager
+ * are created once and reused, so only the first compile pays for loading
+ * the compiler and indexing the platform classes.
+ */
+public final class InMemoryCompiler {
+
+    private static final List<String> OPTIONS = Arrays.asList("-proc:none", "-g:source,lines");
+
+    private final JavaCompiler compiler;
+    private final ClassFileManager fileManager;
+
+    public InMemoryCompiler() {
+        this(ToolProvider.getSystemJavaCompiler());
+    }
+
+    /**
+     * Compiles with the given compiler, which tests use to observe the calls
+     * made to it.
+     */
+    InMemoryCompiler(JavaCompiler compiler) {
+        this.compiler = compiler;
+        if (compiler == null) {
+            throw new IllegalStateException("No system Java compiler is available; a JDK is required.");
+        }
+        fileManager = new ClassFileManager(compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Compiles the source of the top-level class {@code className} and
+     * returns the bytes of every class it produced, keyed by binary name.
+     * Compile errors are reported as a {@link RuntimeException} with the
+     * compiler's diagnostics.
+     */
+    public synchronized Map<String, byte[]> compile(String className, CharSequence source) {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        JavaFileObject file = new SourceFile(className, source);
+        Map<String, byte[]> classes = new HashMap<>();
+        fileManager.classes = classes;
+        try {
+            Boolean success = compiler.getTask(null, fileManager, diagnostics, OPTIONS, null, Collections.singletonList(file)).call();
+            if (!success) {
+                StringBuilder message = new StringBuilder("Compilation of " + className + " failed:");
+                for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+                    message.append(System.lineSeparator()).append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+                }
+                throw new RuntimeException(message.toString());
+            }
+        } finally {
+            fileManager.classes = null;
+        }
+        return classes;
+    }
+
+    /**
+     * Returns a class loader that defines the given compiled classes, with
+     * the loader of this class as its parent.
+     */
+    public static ClassLoader load(Map<String, byte[]> classes) {
+        return new ClassLoader(InMemoryCompiler.class.getClassLoader()) {
+
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                byte[] bytes = classes.get(name);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+
+        };
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+
+        private final CharSequence source;
+
+        private SourceFile(String className, CharSequence source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+    private static final class ClassFile extends SimpleJavaFileObject {
+
+        private final String name;
+        private final Map<String, byte[]> classes;
+
+        private ClassFile(String name, Map<String, byte[]> classes) {
+            super(URI.create("bytes:///" + name.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+            this.name = name;
+            this.classes = classes;
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return new ByteArrayOutputStream() {
+
+                @Override
+                public void close() {
+                    classes.put(name, toByteArray());
+                }
+
+            };
+        }
+
+    }
+
+    /**
+     * Reads sources and platform classes through the standard file manager,
+     * but keeps class output in memory for the compile in progress.
+     */
+    private static final class ClassFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private Map<String, byte[]> classes;
+
+        private ClassFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(JavaFileManager.Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            return new ClassFile(className, classes);
+        }
+
+    }
+
+}
@@ -0,0 +1,445 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * The lexer works through the source one character at a time and produces
+ * the tokens of the grammar:
+ *
+ * <pre>
+ * identifier ::= [A-Za-z_] [A-Za-z0-9_-]*
+ * number     ::= [+-]? [0-9]+ ('.' [0-9]+)?
+ * character  ::= ['] ([^'\n\r\\] | escape) [']
+ * string     ::= '"' ([^"\n\r\\] | escape)* '"'
+ * escape     ::= '\' [bnrt'"\\]
+ * operator   ::= [<>!=] '='? | any character
+ * whitespace ::= [ \b\n\r\t]
+ * </pre>
+ *
+ * Characters are classified by a table instead of by regex, and tokens are
+ * only copied out of the source once, into their literal. The source is
+ * either characters, or UTF-8 bytes such as a memory-mapped file, in which
+ * case token indices are still the offsets of the decoded characters. A
+ * character outside of the Basic Multilingual Plane is a single operator,
+ * and counts as two characters like in a {@link String}.
+ *
+ * The lexer is also an iterator, so a {@link Parser} can pull tokens from it
+ * without the whole token list in memory.
+ */
+public final class Lexer implements Iterator<Token> {
+
+    private static final byte IDENTIFIER_START = 1;
+    private static final byte IDENTIFIER_PART = 2;
+    private static final byte DIGIT = 4;
+    private static final byte WHITESPACE = 8;
+    private static final byte ESCAPE = 16;
+
+    private static final byte[] CLASSES = new byte[128];
+    private static final String[] OPERATORS = new String[128];
+    private static final String[] COMPARISONS = new String[128];
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CLASSES[c] |= IDENTIFIER_START | IDENTIFIER_PART;
+            CLASSES[c + ('a' - 'A')] |= IDENTIFIER_START | IDENTIFIER_PART;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] |= IDENTIFIER_PART | DIGIT;
+        }
+        CLASSES['_'] |= IDENTIFIER_START | IDENTIFIER_PART;
+        CLASSES['-'] |= IDENTIFIER_PART;
+        for (char c : " \b\n\r\t".toCharArray()) {
+            CLASSES[c] |= WHITESPACE;
+        }
+        for (char c : "bnrt'\"\\".toCharArray()) {
+            CLASSES[c] |= ESCAPE;
+        }
+        for (char c = 0; c < 128; c++) {
+            OPERATORS[c] = String.valueOf(c).intern();
+        }
+        for (char c : "<>!=".toCharArray()) {
+            COMPARISONS[c] = (c + "=").intern();
+        }
+    }
+
+    private final Input input;
+
+    public Lexer(String input) {
+        this(CharBuffer.wrap(input));
+    }
+
+    public Lexer(char[] input) {
+        this(CharBuffer.wrap(input));
+    }
+
+    public Lexer(CharBuffer input) {
+        this.input = new CharInput(input);
+    }
+
+    /**
+     * Creates a lexer over UTF-8 encoded bytes, from the position to the
+     * limit of the buffer. The buffer's position is not changed.
+     */
+    public Lexer(ByteBuffer input) {
+        this.input = new Utf8Input(input);
+    }
+
+    /**
+     * Creates a lexer over a UTF-8 file, which is memory-mapped instead of
+     * read. The mapping stays valid after the file is closed.
+     */
+    public static Lexer map(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Lexer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Repeatedly lexes the input using {@link #lexToken()}, also skipping
+     * whitespace where appropriate.
+     */
+    public List<Token> lex() throws ParseException {
+        List<Token> tokens = new ArrayList<>();
+        while (hasNext()) {
+            tokens.add(lexToken());
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns {@code true} if there is another token, skipping whitespace
+     * before it.
+     */
+    @Override
+    public boolean hasNext() {
+        int c;
+        while ((c = input.peek(0)) >= 0 && is(c, WHITESPACE)) {
+            input.advance();
+        }
+        return c >= 0;
+    }
+
+    @Override
+    public Token next() throws ParseException {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return lexToken();
+    }
+
+    /**
+     * Lexes the input into a {@link TokenBuffer} over the same characters,
+     * without creating a {@link Token} or literal for each token. Only
+     * character input can be buffered, since the buffer reads literals from
+     * the source by character index.
+     */
+    public TokenBuffer lexBuffer() throws ParseException {
+        if (!(input instanceof CharInput)) {
+            throw new UnsupportedOperationException("Only character input can be lexed into a token buffer.");
+        }
+        TokenBuffer buffer = new TokenBuffer(((CharInput) input).source());
+        while (hasNext()) {
+            input.mark();
+            Token.Type type = scan();
+            buffer.add(type, input.start(), input.index() - input.start());
+        }
+        return buffer;
+    }
+
+    /**
+     * Lexes the token at the current position, which must not be whitespace
+     * or the end of the input.
+     */
+    public Token lexToken() throws ParseException {
+        input.mark();
+        int c = input.peek(0);
+        Token.Type type = scan();
+        //single character and comparison operators are shared instead of copied from the source
+        if (type == Token.Type.OPERATOR && c < 128) {
+            return new Token(type, input.index() - input.start() == 1 ? OPERATORS[c] : COMPARISONS[c], input.start());
+        }
+        return new Token(type, input.literal(), input.start());
+    }
+
+    /**
+     * Moves past the token at the current position and returns its type.
+     */
+    private Token.Type scan() throws ParseException {
+        int c = input.peek(0);
+        if (is(c, IDENTIFIER_START)) {
+            return lexIdentifier();
+        } else if (is(c, DIGIT) || (c == '+' || c == '-') && is(input.peek(1), DIGIT)) {
+            return lexNumber();
+        } else if (c == '\'') {
+            return lexCharacter();
+        } else if (c == '"') {
+            return lexString();
+        } else {
+            return lexOperator();
+        }
+    }
+
+    private Token.Type lexIdentifier() {
+        do {
+            input.advance();
+        } while (is(input.peek(0), IDENTIFIER_PART));
+        return Token.Type.IDENTIFIER;
+    }
+
+    private Token.Type lexNumber() {
+        do {
+            input.advance();
+        } while (is(input.peek(0), DIGIT));
+        if (input.peek(0) != '.' || !is(input.peek(1), DIGIT)) {
+            return Token.Type.INTEGER;
+        }
+        input.advance();
+        do {
+            input.advance();
+        } while (is(input.peek(0), DIGIT));
+        return Token.Type.DECIMAL;
+    }
+
+    private Token.Type lexCharacter() throws ParseException {
+        input.advance();
+        int c = input.peek(0);
+        if (c == '\\') {
+            lexEscape();
+        } else if (c < 0 || c == '\'' || c == '\n' || c == '\r') {
+            throw new ParseException("Invalid character literal at index " + input.index(), input.index());
+        } else {
+            input.advance();
+        }
+        if (input.peek(0) != '\'') {
+            throw new ParseException("Unterminated character literal at index " + input.index(), input.index());
+        }
+        input.advance();
+        return Token.Type.CHARACTER;
+    }
+
+    private Token.Type lexString() throws ParseException {
+        input.advance();
+        int c;
+        while ((c = input.peek(0)) != '"') {
+            if (c < 0 || c == '\n' || c == '\r') {
+                throw new ParseException("Unterminated string literal at index " + input.index(), input.index());
+            } else if (c == '\\') {
+                lexEscape();
+            } else {
+                input.advance();
+            }
+        }
+        input.advance();
+        return Token.Type.STRING;
+    }
+
+    private void lexEscape() throws ParseException {
+        input.advance();
+        if (!is(input.peek(0), ESCAPE)) {
+            throw new ParseException("Invalid escape at index " + input.index(), input.index());
+        }
+        input.advance();
+    }
+
+    private Token.Type lexOperator() {
+        int c = input.peek(0);
+        input.advance();
+        if (c < 128 && COMPARISONS[c] != null && input.peek(0) == '=') {
+            input.advance();
+        }
+        return Token.Type.OPERATOR;
+    }
+
+    /**
+     * Returns {@code true} if the character is an ASCII character of the
+     * given class. The end of the input and other characters are in none.
+     */
+    private static boolean is(int c, byte type) {
+        return c >= 0 && c < 128 && (CLASSES[c] & type) != 0;
+    }
+
+    /**
+     * The source of a lexer. {@link #peek(int)} looks ahead a number of
+     * characters, but past a non-ASCII character the lookahead of a UTF-8
+     * input is in bytes, so the lexer only looks ahead past ASCII.
+     */
+    private static abstract class Input {
+
+        /**
+         * Returns the character at the offset from the current position, or
+         * {@code -1} past the end. Any value of 128 or more is a non-ASCII
+         * character, but not necessarily the character itself.
+         */
+        abstract int peek(int offset);
+
+        /**
+         * Moves past the current character, or both halves of a surrogate
+         * pair.
+         */
+        abstract void advance();
+
+        /**
+         * Marks the current position as the start of a token.
+         */
+        abstract void mark();
+
+        /**
+         * Returns the character index of the current position.
+         */
+        abstract int index();
+
+        /**
+         * Returns the character index of the start of the token.
+         */
+        abstract int start();
+
+        /**
+         * Returns the characters from the start of the token to the current
+         * position.
+         */
+        abstract String literal();
+
+    }
+
+    private static final class CharInput extends Input {
+
+        private final CharBuffer buffer;
+        private final int offset;
+        private final int limit;
+        private int position;
+        private int start;
+
+        CharInput(CharBuffer buffer) {
+            this.buffer = buffer;
+            this.offset = buffer.position();
+            this.limit = buffer.limit();
+            this.position = offset;
+        }
+
+        @Override
+        int peek(int offset) {
+            return position + offset < limit ? buffer.get(position + offset) : -1;
+        }
+
+        @Override
+        void advance() {
+            char c = buffer.get(position++);
+            if (Character.isHighSurrogate(c) && position < limit && Character.isLowSurrogate(buffer.get(position))) {
+                position++;
+            }
+        }
+
+        @Override
+        void mark() {
+            start = position;
+        }
+
+        @Override
+        int index() {
+            return position - offset;
+        }
+
+        @Override
+        int start() {
+            return start - offset;
+        }
+
+        /**
+         * Returns the characters of the input, indexed like the tokens.
+         */
+        CharSequence source() {
+            return buffer.subSequence(0, limit - offset);
+        }
+
+        @Override
+        String literal() {
+            if (buffer.hasArray()) {
+                return new String(buffer.array(), buffer.arrayOffset() + start, position - start);
+            }
+            return buffer.subSequence(start - offset, position - offset).toString();
+        }
+
+    }
+
+    private static final class Utf8Input extends Input {
+
+        private final ByteBuffer buffer;
+        private final int limit;
+        private int position;
+        private int index = 0;
+        private int start;
+        private int startIndex;
+        private byte[] bytes = new byte[64];
+
+        Utf8Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.limit();
+            this.position = buffer.position();
+        }
+
+        @Override
+        int peek(int offset) {
+            return position + offset < limit ? buffer.get(position + offset) & 0xFF : -1;
+        }
+
+        @Override
+        void advance() {
+            int b = buffer.get(position) & 0xFF;
+            int length = b < 0x80 ? 1 : b >= 0xC2 && b < 0xE0 ? 2 : b >= 0xE0 && b < 0xF0 ? 3 : b >= 0xF0 && b < 0xF5 ? 4 : 0;
+            if (length == 0 || position + length > limit) {
+                throw new ParseException("Invalid UTF-8 at index " + index, index);
+            }
+            for (int i = 1; i < length; i++) {
+                if ((buffer.get(position + i) & 0xC0) != 0x80) {
+                    throw new ParseException("Invalid UTF-8 at index " + index, index);
+                }
+            }
+            position += length;
+            //a four byte sequence is a surrogate pair in UTF-16
+            index += length == 4 ? 2 : 1;
+        }
+
+        @Override
+        void mark() {
+            start = position;
+            startIndex = index;
+        }
+
+        @Override
+        int index() {
+            return index;
+        }
+
+        @Override
+        int start() {
+            return startIndex;
+        }
+
+        @Override
+        String literal() {
+            int length = position - start;
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            for (int i = 0; i < length; i++) {
+                bytes[i] = buffer.get(start + i);
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+    }
+
+}
@@ -1,16 +1,36 @@
 package plc.project;
 
+import java.util.function.Supplier;
+
 public final class ParseException extends RuntimeException {
 
     private final int index;
+    private final Supplier<String> message;
 
     public ParseException(String message, int index) {
         super(message);
         this.index = index;
+        this.message = null;
+    }
+
+    /**
+     * Creates an exception without a stack trace, whose message is only built
+     * if it is read. The parser uses these when it reports errors to
+     * {@link Diagnostics} and only throws to recover at the next member.
+     */
+    public ParseException(Supplier<String> message, int index) {
+        super(null, null, false, false);
+        this.index = index;
+        this.message = message;
     }
 
     public int getIndex() {
         return index;
     }
 
-}
\ No newline at end of file
+    @Override
+    public String getMessage() {
+        return message != null ? message.get() : super.getMessage();
+    }
+
+}
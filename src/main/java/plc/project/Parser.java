@@ -5,6 +5,14 @@ import java.math.BigInteger;
 import java.util.List;
 import java.util.Optional;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * The parser takes the sequence of tokens emitted by the lexer and turns that
@@ -12,8 +20,9 @@ import java.util.ArrayList;
  * Tree (AST).
  *
  * The parser has a similar architecture to the lexer, just with {@link Token}s
- * instead of characters. As before, {@link #peek(Object...)} and {@link
- * #match(Object...)} are helpers to make the implementation easier.
+ * instead of characters. As before, {@link #peek(Token.Kind)} and {@link
+ * #match(Token.Kind)} (with overloads for token types) are helpers to make
+ * the implementation easier.
  *
  * This type of parser is called <em>recursive descent</em>. Each rule in our
  * grammar will have it's own function, and reference to other rules correspond
@@ -21,80 +30,355 @@ import java.util.ArrayList;
  */
 public final class Parser {
 
+    /**
+     * Thrown by a parser on the pool once its method is no longer needed. It
+     * has no stack trace, so stopping allocates nothing.
+     */
+    private static final RuntimeException STOPPED = new RuntimeException(null, null, false, false) {};
+
     private final TokenStream tokens;
+    private Diagnostics diagnostics;
+    private AstInterner interner;
+    //shared with the parsers of methods parsed in parallel
+    private final Map<String, String> strings;
+    private char[] chars = new char[16];
+    //set for the parsers of methods parsed in parallel, which stop at the next statement once it is
+    private final AtomicBoolean stop;
 
     public Parser(List<Token> tokens) {
-        this.tokens = new TokenStream(tokens);
+        this(tokens, 0, new ConcurrentHashMap<>(), null);
+    }
+
+    private Parser(List<Token> tokens, int index, Map<String, String> strings, AtomicBoolean stop) {
+        this.tokens = new ListTokenStream(tokens, index);
+        this.strings = strings;
+        this.stop = stop;
+    }
+
+    /**
+     * Creates a parser that pulls tokens from the iterator as it needs them,
+     * keeping only the last consumed token and the lookahead in a small ring
+     * buffer. Consumed tokens can then be collected while parsing, so the
+     * whole token list never has to be in memory.
+     */
+    public Parser(Iterator<Token> tokens) {
+        this.tokens = new BufferedTokenStream(tokens);
+        this.strings = new ConcurrentHashMap<>();
+        this.stop = null;
+    }
+
+    /**
+     * Creates a parser that reads tokens from the arrays of the buffer, only
+     * creating the literals it needs.
+     */
+    public Parser(TokenBuffer tokens) {
+        this.tokens = new TokenBufferStream(tokens);
+        this.strings = new ConcurrentHashMap<>();
+        this.stop = null;
+    }
+
+    /**
+     * Reports parse errors to the given diagnostics instead of throwing them.
+     * After an error in a field, {@link #parseSource()} skips to the next
+     * {@code LET} or {@code DEF}, and after an error in a method to the next
+     * {@code DEF}, so one run reports an error for each member that fails to
+     * parse and returns the members that parsed. Methods are then always
+     * parsed sequentially.
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * Builds literal, access, group and binary expressions with the given
+     * interner, so that repeated expressions share nodes. Methods are then
+     * always parsed sequentially.
+     */
+    public void setInterner(AstInterner interner) {
+        this.interner = interner;
     }
 
     /**
      * Parses the {@code source} rule.
      */
     public Ast.Source parseSource() throws ParseException {
+        return parseSource(null);
+    }
+
+    /**
+     * Parses the {@code source} rule, parsing the methods in parallel on the
+     * given pool when the parser was created from a list of tokens. The result
+     * and any exception are the same as for {@link #parseSource()}. A
+     * {@code null} pool parses sequentially.
+     */
+    public Ast.Source parseSource(ForkJoinPool pool) throws ParseException {
         List<Ast.Field> fields = new ArrayList<>();
         List<Ast.Method> methods = new ArrayList<>();
-        while(match("LET")) {
-            fields.add(parseField());
+        while(match(Token.Kind.LET)) {
+            try {
+                fields.add(parseField());
+            } catch (ParseException e) {
+                recover(e, Token.Kind.LET);
+            }
         }
-        while(match("DEF")) {
-            methods.add(parseMethod());
+        if(pool != null && diagnostics == null && interner == null && tokens instanceof ListTokenStream) {
+            parseMethods((ListTokenStream) tokens, pool, strings, methods);
         }
-        if(match("LET")){
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("No fields after methods " + index, index);
+        //continues sequentially after the methods parsed in parallel, if any
+        while(match(Token.Kind.DEF)) {
+            try {
+                methods.add(parseMethod());
+            } catch (ParseException e) {
+                recover(e, Token.Kind.DEF);
+            }
+        }
+        if(match(Token.Kind.LET)){
+            ParseException exception = error("No fields after methods ");
+            if(diagnostics == null) {
+                throw exception;
+            }
         }
         return new Ast.Source(fields, methods);
     }
 
+    /**
+     * Parses {@code newTokens}, which are {@code oldTokens} with the tokens
+     * from {@code start} to {@code oldEnd} replaced by the tokens from
+     * {@code start} to {@code newEnd}, given the source previously parsed
+     * from {@code oldTokens}. If the edit is within a single method, only that
+     * method is parsed again and the other members are reused by reference;
+     * the methods are located from their token indices, so this takes time in
+     * the size of the method rather than the file. Otherwise, or if the method
+     * no longer ends where the next one starts, the new tokens are parsed in
+     * full. The result and any exception are the same as for parsing the new
+     * tokens with {@link #parseSource()}, except that the reused members
+     * after the edit keep the token indices of the old tokens. Such a result
+     * can be passed back as {@code previous}: the edited method and the one
+     * after it are only located by index if each is at a {@code DEF} followed
+     * by its name in {@code oldTokens}, and otherwise the new tokens are
+     * parsed in full.
+     */
+    public static Ast.Source reparse(Ast.Source previous, List<Token> oldTokens, List<Token> newTokens, int start, int oldEnd, int newEnd) throws ParseException {
+        List<Ast.Method> methods = previous.getMethods();
+        int method = -1;
+        if(start < oldTokens.size() && !methods.isEmpty() && methods.get(0).getIndex() >= 0) {
+            //the last method which starts before the edit
+            int edit = oldTokens.get(start).getIndex();
+            int low = 0;
+            int high = methods.size();
+            while(low < high) {
+                int middle = (low + high) >>> 1;
+                if(methods.get(middle).getIndex() < edit) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            method = low - 1;
+        }
+        if(method >= 0) {
+            int begin = position(oldTokens, methods.get(method));
+            int end = method + 1 < methods.size() ? position(oldTokens, methods.get(method + 1)) : oldTokens.size();
+            if(begin >= 0 && end >= 0 && oldEnd <= end && newTokens.get(begin).getKind() == Token.Kind.DEF) {
+                Parser parser = new Parser(newTokens, begin + 1, new ConcurrentHashMap<>(), null);
+                Ast.Method replacement = null;
+                try {
+                    replacement = parser.parseMethod();
+                } catch (ParseException e) {
+                    //parsed in full below, so that the exception is the one parseSource throws
+                }
+                if(replacement != null && ((ListTokenStream) parser.tokens).index == end + newEnd - oldEnd) {
+                    List<Ast.Method> reparsed = new ArrayList<>(methods);
+                    reparsed.set(method, replacement);
+                    return new Ast.Source(previous.getFields(), reparsed);
+                }
+            }
+        }
+        return new Parser(newTokens).parseSource();
+    }
+
+    /**
+     * Returns the position of the {@code DEF} token at the index of the
+     * method, or {@code -1} if there is none or it is not followed by the name
+     * of the method, in which case the index is not one from these tokens.
+     */
+    private static int position(List<Token> tokens, Ast.Method method) {
+        int index = method.getIndex();
+        int low = 0;
+        int high = tokens.size() - 1;
+        while(low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = tokens.get(middle).getIndex();
+            if(current < index) {
+                low = middle + 1;
+            } else if(current > index) {
+                high = middle - 1;
+            } else {
+                boolean named = middle + 1 < tokens.size() && tokens.get(middle + 1).getLiteral().equals(method.getName());
+                return tokens.get(middle).getKind() == Token.Kind.DEF && named ? middle : -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Rethrows the exception if errors are not being reported to diagnostics,
+     * and otherwise skips ahead to the next token that starts a member of the
+     * given kind, or a method.
+     */
+    private void recover(ParseException exception, Token.Kind kind) {
+        if(diagnostics == null) {
+            throw exception;
+        }
+        while(tokens.has(0) && !peek(kind) && !peek(Token.Kind.DEF)) {
+            tokens.advance();
+        }
+    }
+
+    /**
+     * Parses the methods which start at each top-level {@code DEF} on the
+     * pool, and adds them in order for as long as each method ends where the
+     * next one starts. A method that fails to parse throws the exception the
+     * sequential parser would, since it started at the same token; a method
+     * that ends anywhere else stops here and leaves the rest to the
+     * sequential parser. The parsers share the given decoded strings.
+     *
+     * Once the methods stop lining up or one fails, the methods still being
+     * parsed on the pool are not needed. Their parsers stop at their next
+     * statement rather than parse on while the sequential parser reparses
+     * the same tokens, and those not started yet are cancelled.
+     */
+    private static void parseMethods(ListTokenStream stream, ForkJoinPool pool, Map<String, String> strings, List<Ast.Method> methods) {
+        int[] starts = scanMethods(stream.tokens, stream.index);
+        if(starts.length < 2) {
+            return;
+        }
+        AtomicBoolean stop = new AtomicBoolean();
+        List<ForkJoinTask<ParsedMethod>> tasks = new ArrayList<>(starts.length);
+        for(int i = 0; i < starts.length; i++) {
+            int start = starts[i] + 1;
+            tasks.add(pool.submit(() -> {
+                Parser parser = new Parser(stream.tokens, start, strings, stop);
+                try {
+                    return new ParsedMethod(parser.parseMethod(), ((ListTokenStream) parser.tokens).index, null);
+                } catch (ParseException e) {
+                    return new ParsedMethod(null, start, e);
+                } catch (RuntimeException e) {
+                    if(e != STOPPED) {
+                        throw e;
+                    }
+                    return null;
+                }
+            }));
+        }
+        try {
+            for(int i = 0; i < starts.length && stream.index == starts[i]; i++) {
+                ParsedMethod result = tasks.get(i).join();
+                if(result.exception != null) {
+                    throw result.exception;
+                }
+                methods.add(result.method);
+                stream.index = result.end;
+            }
+        } finally {
+            stop.set(true);
+            for(ForkJoinTask<ParsedMethod> task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * A method parsed on the pool and the position after it, or the exception
+     * parsing it threw.
+     */
+    private static final class ParsedMethod {
+
+        private final Ast.Method method;
+        private final int end;
+        private final ParseException exception;
+
+        private ParsedMethod(Ast.Method method, int end, ParseException exception) {
+            this.method = method;
+            this.end = end;
+            this.exception = exception;
+        }
+
+    }
+
+    /**
+     * Returns the positions of the {@code DEF} tokens outside of any
+     * {@code DO ... END} block, from the given position on. Stops at an
+     * {@code END} without a matching {@code DO}, which the sequential parser
+     * reports.
+     */
+    private static int[] scanMethods(List<Token> tokens, int from) {
+        int[] starts = new int[16];
+        int count = 0;
+        int depth = 0;
+        for(int i = from; i < tokens.size(); i++) {
+            Token.Kind kind = tokens.get(i).getKind();
+            if(kind == Token.Kind.DO) {
+                depth++;
+            }
+            else if(kind == Token.Kind.END && --depth < 0) {
+                break;
+            }
+            else if(kind == Token.Kind.DEF && depth == 0) {
+                if(count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i;
+            }
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
     /**
      * Parses the {@code field} rule. This method should only be called if the
      * next tokens start a field, aka {@code LET}.
      */
     public Ast.Field parseField() throws ParseException {
+        int start = tokens.getIndex(-1);
         if(match(Token.Type.IDENTIFIER)){
-            String identifier = tokens.get(-1).getLiteral();
+            String identifier = tokens.getLiteral(-1);
             String typeName = "";
             //in field we are required to match a type declaration
-            if(match(":")){
+            if(match(Token.Kind.COLON)){
                 //colon must be followed by Identifier
                 if(match(Token.Type.IDENTIFIER)){
-                    typeName = tokens.get(-1).getLiteral();
+                    typeName = tokens.getLiteral(-1);
                 }
                 else{
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected Type Name after ':' at index " + index, index);
+                    throw error("Expected Type Name after ':' at index ");
                 }
             }
             else{
-                int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                throw new ParseException("Expected ':' after field declaration at index " + index, index);
+                throw error("Expected ':' after field declaration at index ");
             }
 
             //optional assignment block
-            if(match("=")){
+            if(match(Token.Kind.ASSIGN)){
                 Ast.Expr expr = parseExpression();
-                if(match(";")){
-                    return new Ast.Field(identifier, typeName, Optional.of(expr));
+                if(match(Token.Kind.SEMICOLON)){
+                    return at(start, new Ast.Field(identifier, typeName, Optional.of(expr)));
                 }
                 else {
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected ; " + index, index);
+                    throw error("Expected ; ");
                 }
             }
             //otherwise expect semicolon (end of statement)
             else {
-                if(match(";")){
-                    return new Ast.Field(identifier, typeName, Optional.empty());
+                if(match(Token.Kind.SEMICOLON)){
+                    return at(start, new Ast.Field(identifier, typeName, Optional.empty()));
                 }
                 else {
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected ; " + index, index);
+                    throw error("Expected ; ");
                 }
             }
         }
         else {
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("Expected identifier " + index, index);
+            throw error("Expected identifier ");
         }
     }
 
@@ -107,29 +391,28 @@ public final class Parser {
         List<String> parameterTypeNames = new ArrayList<>();
         Optional<String> returnTypeName = Optional.empty();
         List<Ast.Stmt> statements = new ArrayList<>();
+        int start = tokens.getIndex(-1);
 
         if(match(Token.Type.IDENTIFIER)) {
-            String identifier = tokens.get(-1).getLiteral();
-            if(match("(")){
+            String identifier = tokens.getLiteral(-1);
+            if(match(Token.Kind.LEFT_PAREN)){
                 //if there is content before closing parenthesis, parse this content
-                if(!peek(")")){
+                if(!peek(Token.Kind.RIGHT_PAREN)){
                     //parse identifiers within parentheses for arguments
                     if(match(Token.Type.IDENTIFIER)){
-                        String identifierValue = tokens.get(-1).getLiteral();
+                        String identifierValue = tokens.getLiteral(-1);
                         String typeValue = "";
                         //check for mandatory type declaration
-                        if(match(":")){
+                        if(match(Token.Kind.COLON)){
                             if(match(Token.Type.IDENTIFIER)){
-                                typeValue = tokens.get(-1).getLiteral();
+                                typeValue = tokens.getLiteral(-1);
                             }
                             else{
-                                int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                                throw new ParseException("Expected identifier at " + index, index);
+                                throw error("Expected identifier at ");
                             }
                         }
                         else{
-                            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                            throw new ParseException("Expected ':' in method declaration at " + index, index);
+                            throw error("Expected ':' in method declaration at ");
                         }
 
                         parameters.add(identifierValue);
@@ -137,84 +420,74 @@ public final class Parser {
 
                     }
                     else {
-                        int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                        throw new ParseException("Expected identifier " + index, index);
+                        throw error("Expected identifier ");
                     }
 
                     //if multiple parameters exist they should be preceded by commas, parse these and add to list
-                    while(match(",")){
+                    while(match(Token.Kind.COMMA)){
                         if(match(Token.Type.IDENTIFIER)){
-                            String identifierValue = tokens.get(-1).getLiteral();
+                            String identifierValue = tokens.getLiteral(-1);
                             String typeValue = "";
                             //check for mandatory type declaration
-                            if(match(":")){
+                            if(match(Token.Kind.COLON)){
                                 if(match(Token.Type.IDENTIFIER)){
-                                    typeValue = tokens.get(-1).getLiteral();
+                                    typeValue = tokens.getLiteral(-1);
                                 }
                                 else{
-                                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                                    throw new ParseException("Expected identifier at " + index, index);
+                                    throw error("Expected identifier at ");
                                 }
                             }
                             else{
-                                int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                                throw new ParseException("Expected ':' in method declaration at " + index, index);
+                                throw error("Expected ':' in method declaration at ");
                             }
 
                             parameters.add(identifierValue);
                             parameterTypeNames.add(typeValue);
                         }
                         else {
-                            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                            throw new ParseException("Expected identifier " + index, index);
+                            throw error("Expected identifier ");
                         }
                     }
                 }
 
-                if(match(")")){
+                if(match(Token.Kind.RIGHT_PAREN)){
                     //optionally match a return type declaration
-                    if(match(":")){
+                    if(match(Token.Kind.COLON)){
                         if(match(Token.Type.IDENTIFIER)){
-                            returnTypeName = Optional.of(tokens.get(-1).getLiteral());
+                            returnTypeName = Optional.of(tokens.getLiteral(-1));
                         }
                         else{
-                            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                            throw new ParseException("Expected identifier at index " + index, index);
+                            throw error("Expected identifier at index ");
                         }
                     }
 
                     //match mandatory statements block
-                    if(match("DO")){
-                        while(!peek("END")) {
+                    if(match(Token.Kind.DO)){
+                        while(!peek(Token.Kind.END)) {
                             Ast.Stmt stmt = parseStatement();
                             statements.add(stmt);
                         }
-                        if(match("END")){
-                            return new Ast.Method(identifier, parameters, parameterTypeNames, returnTypeName, statements);
+                        if(match(Token.Kind.END)){
+                            return at(start, new Ast.Method(identifier, parameters, parameterTypeNames, returnTypeName, statements));
                         }
                         else{
-                            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                            throw new ParseException("Expected END " + index, index);
+                            throw error("Expected END ");
                         }
                     }
                     else {
-                        int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                        throw new ParseException("Expected DO " + index, index);
+                        throw error("Expected DO ");
                     }
                 }
                 else {
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected ) " + index, index);
+                    throw error("Expected ) ");
                 }
             }
             else {
-                int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                throw new ParseException("Expected ( " + index, index);
+                throw error("Expected ( ");
             }
         }
         else {
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("Expected identifier " + index, index);
+            throw error("Expected identifier ");
         }
     }
 
@@ -224,38 +497,45 @@ public final class Parser {
      * statement, then it is an expression/assignment statement.
      */
     public Ast.Stmt parseStatement() throws ParseException {
-        if(match("LET")){
-            return parseDeclarationStatement();
+        if(stop != null && stop.get()) {
+            throw STOPPED;
+        }
+        if(match(Token.Kind.LET)){
+            Ast.Stmt.Declaration declaration = parseDeclarationStatement();
+            //the name refers to the new variable from here on
+            if(interner != null){
+                interner.invalidate();
+            }
+            return declaration;
         }
-        else if(match("IF")){
+        else if(match(Token.Kind.IF)){
             return parseIfStatement();
         }
-        else if(match("FOR")){
+        else if(match(Token.Kind.FOR)){
             return parseForStatement();
         }
-        else if(match("WHILE")){
+        else if(match(Token.Kind.WHILE)){
             return parseWhileStatement();
         }
-        else if(match("RETURN")){
+        else if(match(Token.Kind.RETURN)){
             return parseReturnStatement();
         }
         else{
+            int start = tokens.has(0) ? tokens.getIndex(0) : -1;
             Ast.Expr left = parseExpression();
-            if(match("=")) {
+            if(match(Token.Kind.ASSIGN)) {
                 Ast.Expr right = parseExpression();
-                if(!match(";")) {
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected ; " + index, index);
+                if(!match(Token.Kind.SEMICOLON)) {
+                    throw error("Expected ; ");
                 }
-                return new Ast.Stmt.Assignment(left, right);
+                return at(start, new Ast.Stmt.Assignment(left, right));
             }
             else{
-                if(match(";")){
-                    return new Ast.Stmt.Expression(left);
+                if(match(Token.Kind.SEMICOLON)){
+                    return at(start, new Ast.Stmt.Expression(left));
                 }
                 else{
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected ; " + index, index);
+                    throw error("Expected ; ");
                 }
             }
         }
@@ -267,48 +547,45 @@ public final class Parser {
      * statement, aka {@code LET}.
      */
     public Ast.Stmt.Declaration parseDeclarationStatement() throws ParseException {
+        int start = tokens.getIndex(-1);
         if(match(Token.Type.IDENTIFIER)){
-            String identifier = tokens.get(-1).getLiteral();
+            String identifier = tokens.getLiteral(-1);
             String typeName = "";
             //if match colon then type is declared
-            if(match(":")){
+            if(match(Token.Kind.COLON)){
                 //colon must be followed by Identifier
                 if(match(Token.Type.IDENTIFIER)){
-                    typeName = tokens.get(-1).getLiteral();
+                    typeName = tokens.getLiteral(-1);
                 }
                 else{
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected Type Name after ':' at index " + index, index);
+                    throw error("Expected Type Name after ':' at index ");
                 }
             }
             //handle typing parameter to Ast.Stmt.Declaration
             Optional<String> type = typeName.equals("") ? Optional.empty() : Optional.of(typeName);
 
             //optional assignment block
-            if(match("=")){
+            if(match(Token.Kind.ASSIGN)){
                 Ast.Expr expr = parseExpression();
-                if(match(";")){
-                    return new Ast.Stmt.Declaration(identifier, type, Optional.of(expr));
+                if(match(Token.Kind.SEMICOLON)){
+                    return at(start, new Ast.Stmt.Declaration(identifier, type, Optional.of(expr)));
                 }
                 else {
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected ; " + index, index);
+                    throw error("Expected ; ");
                 }
             }
             //otherwise expect semicolon (end of statement)
             else {
-                if(match(";")){
-                    return new Ast.Stmt.Declaration(identifier, type, Optional.empty());
+                if(match(Token.Kind.SEMICOLON)){
+                    return at(start, new Ast.Stmt.Declaration(identifier, type, Optional.empty()));
                 }
                 else {
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected ; " + index, index);
+                    throw error("Expected ; ");
                 }
             }
         }
         else {
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("Expected identifier " + index, index);
+            throw error("Expected identifier ");
         }
     }
 
@@ -318,29 +595,28 @@ public final class Parser {
      * {@code IF}.
      */
     public Ast.Stmt.If parseIfStatement() throws ParseException {
+        int start = tokens.getIndex(-1);
         Ast.Expr expr = parseExpression();
-        if(!match("DO")){
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("Expected DO " + index, index);
+        if(!match(Token.Kind.DO)){
+            throw error("Expected DO ");
         }
         List<Ast.Stmt> firstS = new ArrayList<>();
         List<Ast.Stmt> secondS = new ArrayList<>();
 
-        while(!peek("ELSE") && !peek("END")) {
+        while(!peek(Token.Kind.ELSE) && !peek(Token.Kind.END)) {
             Ast.Stmt stmt1 = parseStatement();
             firstS.add(stmt1);
         }
-        if(match("ELSE")){
-            while(!peek("END")) {
+        if(match(Token.Kind.ELSE)){
+            while(!peek(Token.Kind.END)) {
                 Ast.Stmt stmt2 = parseStatement();
                 secondS.add(stmt2);
             }
         }
-        if(!match("END")){
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("Expected END " + index, index);
+        if(!match(Token.Kind.END)){
+            throw error("Expected END ");
         }
-        return new Ast.Stmt.If(expr, firstS, secondS);
+        return at(start, new Ast.Stmt.If(expr, firstS, secondS));
     }
 
     /**
@@ -349,37 +625,34 @@ public final class Parser {
      * {@code FOR}.
      */
     public Ast.Stmt.For parseForStatement() throws ParseException {
+        int start = tokens.getIndex(-1);
         List<Ast.Stmt> statements = new ArrayList<>();
         if(match(Token.Type.IDENTIFIER)){
-            String identifier = tokens.get(-1).getLiteral();
-            if(match("IN")){
+            String identifier = tokens.getLiteral(-1);
+            if(match(Token.Kind.IN)){
                 Ast.Expr expr = parseExpression();
-                if(match("DO")){
-                    while(!peek("END")) {
+                if(match(Token.Kind.DO)){
+                    while(!peek(Token.Kind.END)) {
                         Ast.Stmt stmt = parseStatement();
                         statements.add(stmt);
                     }
-                    if(match("END")){
-                        return new Ast.Stmt.For(identifier, expr, statements);
+                    if(match(Token.Kind.END)){
+                        return at(start, new Ast.Stmt.For(identifier, expr, statements));
                     }
                     else{
-                        int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                        throw new ParseException("Expected END " + index, index);
+                        throw error("Expected END ");
                     }
                 }
                 else{
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected DO " + index, index);
+                    throw error("Expected DO ");
                 }
             }
             else{
-                int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                throw new ParseException("Expected IN " + index, index);
+                throw error("Expected IN ");
             }
         }
         else {
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("Expected identifier " + index, index);
+            throw error("Expected identifier ");
         }
     }
 
@@ -389,24 +662,23 @@ public final class Parser {
      * {@code WHILE}.
      */
     public Ast.Stmt.While parseWhileStatement() throws ParseException {
+        int start = tokens.getIndex(-1);
         List<Ast.Stmt> statements = new ArrayList<>();
         Ast.Expr expr = parseExpression();
-        if(match("DO")){
-            while(!peek("END")) {
+        if(match(Token.Kind.DO)){
+            while(!peek(Token.Kind.END)) {
                 Ast.Stmt stmt = parseStatement();
                 statements.add(stmt);
             }
-            if(match("END")){
-                return new Ast.Stmt.While(expr, statements);
+            if(match(Token.Kind.END)){
+                return at(start, new Ast.Stmt.While(expr, statements));
             }
             else{
-                int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                throw new ParseException("Expected END " + index, index);
+                throw error("Expected END ");
             }
         }
         else{
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("Expected DO " + index, index);
+            throw error("Expected DO ");
         }
     }
 
@@ -416,13 +688,13 @@ public final class Parser {
      * {@code RETURN}.
      */
     public Ast.Stmt.Return parseReturnStatement() throws ParseException {
+        int start = tokens.getIndex(-1);
         Ast.Expr expr = parseExpression();
-        if(match(";")){
-            return new Ast.Stmt.Return(expr);
+        if(match(Token.Kind.SEMICOLON)){
+            return at(start, new Ast.Stmt.Return(expr));
         }
         else {
-            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-            throw new ParseException("Expected ; " + index, index);
+            throw error("Expected ; ");
         }
     }
 
@@ -430,98 +702,86 @@ public final class Parser {
      * Parses the {@code expression} rule.
      */
     public Ast.Expr parseExpression() throws ParseException {
-        //send tokens down the graph to be classified
-        return parseLogicalExpression();
+        return parseBinaryExpression(1);
     }
 
     /**
      * Parses the {@code logical-expression} rule.
      */
     public Ast.Expr parseLogicalExpression() throws ParseException {
-        Ast.Expr comparisonExpression = parseEqualityExpression();
-        Ast.Expr comparisonRightHand = null;
-        String operator = null;
-
-        while(peek("OR") || peek("AND")) {
-            if (match("OR")) {
-                comparisonRightHand = parseEqualityExpression();
-                operator = "OR";
-                comparisonExpression = new Ast.Expr.Binary(operator, comparisonExpression, comparisonRightHand);
-            } else if (match("AND")) {
-                comparisonRightHand = parseEqualityExpression();
-                operator = "AND";
-                comparisonExpression = new Ast.Expr.Binary(operator, comparisonExpression, comparisonRightHand);
-            }
-        }
-        //if this has a logical operator return the binary expression
-        return comparisonExpression;
+        return parseBinaryExpression(1);
     }
 
     /**
      * Parses the {@code equality-expression} rule.
      */
     public Ast.Expr parseEqualityExpression() throws ParseException {
-        String[] comparison_operators = {"!=", "==", ">=", ">", "<=", "<"};
-        String operator = null;
-        Ast.Expr additiveRightHand = null;
-        Ast.Expr additive = parseAdditiveExpression();
-
-        //check for existence of operators in token stream
-        while(peek("!=") || peek("==") || peek(">=") || peek(">") || peek("<=") || peek("<")) {
-            for (int i = 0; i < comparison_operators.length; i++) {
-                if (match(comparison_operators[i])) {
-                    operator = comparison_operators[i];
-                    additiveRightHand = parseAdditiveExpression();
-                    additive = new Ast.Expr.Binary(operator, additive, additiveRightHand);
-                    break;
-                }
-            }
-        }
-        return additive;
+        return parseBinaryExpression(2);
     }
 
     /**
      * Parses the {@code additive-expression} rule.
      */
     public Ast.Expr parseAdditiveExpression() throws ParseException {
-        Ast.Expr multiplicative = parseMultiplicativeExpression();
-        String operator = null;
-        Ast.Expr multiplicativeRightHand = null;
-
-        while(peek("+") || peek("-")) {
-            if (match("+")) {
-                multiplicativeRightHand = parseMultiplicativeExpression();
-                operator = "+";
-                multiplicative = new Ast.Expr.Binary(operator, multiplicative, multiplicativeRightHand);
-            } else if (match("-")) {
-                multiplicativeRightHand = parseMultiplicativeExpression();
-                operator = "-";
-                multiplicative = new Ast.Expr.Binary(operator, multiplicative, multiplicativeRightHand);
-            }
-        }
-        return multiplicative;
+        return parseBinaryExpression(3);
     }
 
     /**
      * Parses the {@code multiplicative-expression} rule.
      */
     public Ast.Expr parseMultiplicativeExpression() throws ParseException {
-        Ast.Expr secondary = parseSecondaryExpression();
-        String operator = null;
-        Ast.Expr secondaryRightHand = null;
+        return parseBinaryExpression(4);
+    }
 
-        while(peek("*") || peek("/")) {
-            if (match("*")) {
-                secondaryRightHand = parseSecondaryExpression();
-                operator = "*";
-                secondary = new Ast.Expr.Binary(operator, secondary, secondaryRightHand);
-            } else if (match("/")) {
-                secondaryRightHand = parseSecondaryExpression();
-                operator = "/";
-                secondary = new Ast.Expr.Binary(operator, secondary, secondaryRightHand);
+    /**
+     * Parses a chain of binary operators whose binding power is at least
+     * {@code minPower}, by precedence climbing. Each operator's right operand
+     * only takes operators that bind tighter, so all operators associate to
+     * the left and the trees are the same as parsing each precedence level
+     * with its own rule, without a call per level for every operand.
+     */
+    private Ast.Expr parseBinaryExpression(int minPower) throws ParseException {
+        Ast.Expr left = parseSecondaryExpression();
+        while(tokens.has(0)) {
+            Token.Kind kind = tokens.getKind(0);
+            int power = bindingPower(kind);
+            if(power == 0 || power < minPower) {
+                break;
             }
+            tokens.advance();
+            int index = tokens.getIndex(-1);
+            Ast.Expr right = parseBinaryExpression(power + 1);
+            left = interner != null ? interner.binary(index, kind.getLiteral(), left, right) : at(index, new Ast.Expr.Binary(kind.getLiteral(), left, right));
+        }
+        return left;
+    }
+
+    /**
+     * Returns the binding power of a binary operator, from the loosest
+     * (logical) to the tightest (multiplicative), or 0 if the token is not a
+     * binary operator.
+     */
+    private static int bindingPower(Token.Kind kind) {
+        switch(kind) {
+            case AND:
+            case OR:
+                return 1;
+            case EQUAL:
+            case NOT_EQUAL:
+            case LESS:
+            case LESS_EQUAL:
+            case GREATER:
+            case GREATER_EQUAL:
+                return 2;
+            case PLUS:
+            case MINUS:
+                return 3;
+            case TIMES:
+            case DIVIDE:
+                return 4;
+            default:
+                return 0;
         }
-        return secondary;
     }
 
     /**
@@ -530,60 +790,59 @@ public final class Parser {
     public Ast.Expr parseSecondaryExpression() throws ParseException {
         Ast.Expr primaryExpression = parsePrimaryExpression();
 
-        if(peek(".")){
+        if(peek(Token.Kind.DOT)){
             Ast.Expr function_call = null;
-            while(match(".")){
+            while(match(Token.Kind.DOT)){
                 if(match(Token.Type.IDENTIFIER)){
                     //record field/function identifier literal
-                    String field_name = tokens.get(-1).getLiteral();
-                    if(match("(")){
+                    String field_name = tokens.getLiteral(-1);
+                    int start = tokens.getIndex(-1);
+                    if(match(Token.Kind.LEFT_PAREN)){
                         List<Ast.Expr> arguments = new ArrayList<Ast.Expr>();
 
                         //if there is content before closing parenthesis, parse this content
-                        if(!peek(")")){
+                        if(!peek(Token.Kind.RIGHT_PAREN)){
                             //parse expression within parentheses for arguments
                             Ast.Expr innerExpression = parseExpression();
                             arguments.add(innerExpression);
 
                             //if multiple parameters exist they should be preceded by commas, parse these and add to list
-                            while(match(",")){
+                            while(match(Token.Kind.COMMA)){
                                 innerExpression = parseExpression();
                                 arguments.add(innerExpression);
                             }
                         }
 
-                        if(match(")")){
+                        if(match(Token.Kind.RIGHT_PAREN)){
                             if(function_call == null){
                                 //if this is the first function call, the receiver is the primary expression
-                                function_call = new Ast.Expr.Function(Optional.of(primaryExpression), field_name, arguments);
+                                function_call = at(start, new Ast.Expr.Function(Optional.of(primaryExpression), field_name, arguments));
                             }
                             else{
                                 //for subsequent function calls, the receiver is what was already evaluated from the left
                                 //Ex: x.func1().func2() --> receiver: x.func1(), name: func2, args: []
-                                function_call = new Ast.Expr.Function(Optional.of(function_call), field_name, arguments);
+                                function_call = at(start, new Ast.Expr.Function(Optional.of(function_call), field_name, arguments));
                             }
                         }
                         else{
-                            int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                            throw new ParseException("Expected Closing Parenthesis \")\" " + index, index);
+                            throw error("Expected Closing Parenthesis \")\" ");
                         }
                     }
                     else{
                         //For cases such as "x.y" acknowledge access
                         if(function_call == null){
                             //for first access
-                            function_call = new Ast.Expr.Access(Optional.of(primaryExpression), field_name);
+                            function_call = access(start, Optional.of(primaryExpression), field_name);
                         }
                         else{
                             //in the case of x.y.z or x.func().y or x.y.func().z.func2() etc
-                            function_call = new Ast.Expr.Access(Optional.of(function_call), field_name);
+                            function_call = access(start, Optional.of(function_call), field_name);
                         }
                     }
                 }
                 else{
                     //if no identifier after open parenthesis
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected Valid Identifier " + index, index);
+                    throw error("Expected Valid Identifier ");
                 }
             }
 
@@ -603,208 +862,391 @@ public final class Parser {
      * not strictly necessary.
      */
     public Ast.Expr parsePrimaryExpression() throws ParseException {
-        if(match("NIL")){
-            return new Ast.Expr.Literal(null);
+        if(match(Token.Kind.NIL)){
+            return literal(tokens.getIndex(-1), new Ast.Expr.Literal(null));
         }
-        else if(match("TRUE")){
-            return new Ast.Expr.Literal(true);
+        else if(match(Token.Kind.TRUE)){
+            return literal(tokens.getIndex(-1), new Ast.Expr.Literal(true));
         }
-        else if(match("FALSE")){
-            return new Ast.Expr.Literal(false);
+        else if(match(Token.Kind.FALSE)){
+            return literal(tokens.getIndex(-1), new Ast.Expr.Literal(false));
         }
         else if(match(Token.Type.INTEGER)){
-            return new Ast.Expr.Literal(new BigInteger(tokens.get(-1).getLiteral()));
+            return literal(tokens.getIndex(-1), integer(tokens.getLiteral(-1)));
         }
         else if(match(Token.Type.DECIMAL)){
-            return new Ast.Expr.Literal(new BigDecimal(tokens.get(-1).getLiteral()));
+            return literal(tokens.getIndex(-1), decimal(tokens.getLiteral(-1)));
         }
         else if(match(Token.Type.CHARACTER)){
-            String literal = tokens.get(-1).getLiteral();
-            literal = literal.substring(1, literal.length()-1);
-
-            if(literal.length() > 1){
-                if(literal.charAt(0) != '\\'){
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Invalid Character " + index, index);
-                }
-
-                char escapedChar = literal.charAt(1);
-                char result;
-                switch(escapedChar){
-                    case 'b':
-                        result = '\b';
-                        break;
-                    case 'n':
-                        result = '\n';
-                        break;
-                    case 'r':
-                        result = '\r';
-                        break;
-                    case 't':
-                        result = '\t';
-                        break;
-                    case '\'':
-                        result = '\'';
-                        break;
-                    case '\"':
-                        result = '\"';
-                        break;
-                    case '\\':
-                        result = '\\';
-                        break;
-                    default:
-                        int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                        throw new ParseException("Invalid Escape Character " + index, index);
-                }
-
-                return new Ast.Expr.Literal(new Character(result));
-            }
-            else{
-                return new Ast.Expr.Literal(new Character(literal.charAt(0)));
+            String literal = decode(tokens.getLiteral(-1));
+            if(literal.length() != 1){
+                throw error("Invalid Character ");
             }
-
+            return literal(tokens.getIndex(-1), new Ast.Expr.Literal(Character.valueOf(literal.charAt(0))));
         }
         else if(match(Token.Type.STRING)){
-            String literal = tokens.get(-1).getLiteral();
-            literal = literal.substring(1, literal.length()-1);
-            String[] escapeVals = {"\\n", "\\b", "\\r", "\\t", "\\'", "\\\"", "\\\\"};
-            String[] replaceVals = {"\n", "\b", "\r", "\t", "\'", "\"", "\\"};
-
-            for(int i = 0; i < escapeVals.length; i++){
-                literal = literal.replace(escapeVals[i], replaceVals[i]);
+            String literal = tokens.getLiteral(-1);
+            //repeated literals share one decoded string
+            String value = strings.get(literal);
+            if(value == null){
+                value = decode(literal);
+                String shared = strings.putIfAbsent(literal, value);
+                if(shared != null){
+                    value = shared;
+                }
             }
-
-            return new Ast.Expr.Literal(literal);
+            return literal(tokens.getIndex(-1), new Ast.Expr.Literal(value));
         }
-        else if(match("(")){
+        else if(match(Token.Kind.LEFT_PAREN)){
+            int start = tokens.getIndex(-1);
             Ast.Expr innerExpression = parseExpression();
-            if(match(")")){
-                return new Ast.Expr.Group(innerExpression);
+            if(match(Token.Kind.RIGHT_PAREN)){
+                return interner != null ? interner.group(start, innerExpression) : at(start, new Ast.Expr.Group(innerExpression));
             }
             else{
-                int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                throw new ParseException("Expected Closing Parenthesis \")\" " + index, index);
+                throw error("Expected Closing Parenthesis \")\" ");
             }
         }
         else if(match(Token.Type.IDENTIFIER)){
-            String identifier_name = tokens.get(-1).getLiteral();
-            if(match("(")){
+            String identifier_name = tokens.getLiteral(-1);
+            int start = tokens.getIndex(-1);
+            if(match(Token.Kind.LEFT_PAREN)){
 
                 List<Ast.Expr> arguments = new ArrayList<Ast.Expr>();
 
-                if(!peek(")")){
+                if(!peek(Token.Kind.RIGHT_PAREN)){
                     Ast.Expr innerExpression = parseExpression();
                     arguments.add(innerExpression);
 
-                    while(match(",")){
+                    while(match(Token.Kind.COMMA)){
                         innerExpression = parseExpression();
                         arguments.add(innerExpression);
                     }
                 }
 
-                if(match(")")){
-                    return new Ast.Expr.Function(Optional.empty(), identifier_name, arguments);
+                if(match(Token.Kind.RIGHT_PAREN)){
+                    return at(start, new Ast.Expr.Function(Optional.empty(), identifier_name, arguments));
                 }
                 else{
-                    int index = tokens.has(0) ? tokens.get(0).getIndex() : tokens.get(-1).getIndex() + tokens.get(-1).getLiteral().length();
-                    throw new ParseException("Expected Closing Parenthesis \")\" " + index, index);
+                    throw error("Expected Closing Parenthesis \")\" ");
                 }
 
             }
             else{
-                return new Ast.Expr.Access(Optional.empty(), identifier_name);
+                return access(start, Optional.empty(), identifier_name);
             }
         }
         else{
-            if(tokens.has(0)){
-                throw new ParseException("Invalid Expression " + tokens.get(0).getIndex(), tokens.get(0).getIndex());
-            }
-            else {
-                String Ename = tokens.get(-1).getLiteral();
-                throw new ParseException("Invalid Expression " + (Ename.length() + tokens.get(-1).getIndex()), Ename.length() + tokens.get(-1).getIndex());
-            }
+            throw error("Invalid Expression ");
         }
 
     }
 
+    private Ast.Expr.Literal literal(int index, Ast.Expr.Literal literal) {
+        return interner != null ? interner.literal(index, literal) : at(index, literal);
+    }
+
+    private Ast.Expr.Access access(int index, Optional<Ast.Expr> receiver, String name) {
+        return interner != null ? interner.access(index, receiver, name) : at(index, new Ast.Expr.Access(receiver, name));
+    }
+
     /**
-     * As in the lexer, returns {@code true} if the current sequence of tokens
-     * matches the given patterns. Unlike the lexer, the pattern is not a regex;
-     * instead it is either a {@link Token.Type}, which matches if the token's
-     * type is the same, or a {@link String}, which matches if the token's
-     * literal is the same.
-     *
-     * In other words, {@code Token(IDENTIFIER, "literal")} is matched by both
-     * {@code peek(Token.Type.IDENTIFIER)} and {@code peek("literal")}.
+     * Returns an integer literal stored as an {@code int} if it fits in one,
+     * or otherwise as a {@link BigInteger} for the analyzer to reject.
      */
-    private boolean peek(Object... patterns) {
-        for(int i = 0; i < patterns.length; i++){
-            if(!tokens.has(i)){
-                return false;
-            }
-            else if(patterns[i] instanceof Token.Type){
-                if(patterns[i] != tokens.get(i).getType()){
-                    return false;
-                }
+    private static Ast.Expr.Literal integer(String literal) {
+        //a sign and ten digits always fit in a long
+        if(literal.length() <= 11){
+            long value = Long.parseLong(literal);
+            if((int) value == value){
+                return Ast.Expr.Literal.ofInteger((int) value);
             }
-            else if(patterns[i] instanceof String){
-                if(!patterns[i].equals(tokens.get(i).getLiteral())) {
-                    return false;
+        }
+        return new Ast.Expr.Literal(new BigInteger(literal));
+    }
+
+    /**
+     * Returns a decimal literal stored as a {@code double} if it is written
+     * the way {@link Double#toString(double)} writes its value, so that the
+     * value and the generated code are the same as with a {@link BigDecimal},
+     * which keeps trailing zeros.
+     */
+    private static Ast.Expr.Literal decimal(String literal) {
+        double value = Double.parseDouble(literal);
+        if(Double.toString(value).equals(literal)){
+            return Ast.Expr.Literal.ofDecimal(value);
+        }
+        return new Ast.Expr.Literal(new BigDecimal(literal));
+    }
+
+    /**
+     * Returns the value of a string or character literal, without its quotes
+     * and with its escapes replaced, in a single pass. Escapes are decoded
+     * into a buffer kept by the parser, so either way the string is the only
+     * allocation.
+     */
+    private String decode(String literal) throws ParseException {
+        int escape = literal.indexOf('\\', 1);
+        if(escape < 0 || escape >= literal.length() - 1){
+            return literal.substring(1, literal.length() - 1);
+        }
+        if(chars.length < literal.length() - 2){
+            chars = new char[Math.max(literal.length() - 2, 2 * chars.length)];
+        }
+        int length = 0;
+        for(int i = 1; i < literal.length() - 1; i++){
+            char c = literal.charAt(i);
+            if(c == '\\' && i + 1 < literal.length() - 1){
+                switch(literal.charAt(++i)){
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case '\'':
+                    case '\"':
+                    case '\\':
+                        c = literal.charAt(i);
+                        break;
+                    default:
+                        throw error("Invalid Escape Character ");
                 }
             }
-            else{
-                throw new AssertionError("Invalid pattern object: " + patterns[i].getClass());
-            }
+            chars[length++] = c;
         }
+        return new String(chars, 0, length);
+    }
 
-        return true;
+    /**
+     * Returns the exception for an error at the next token, or just past the
+     * last token at the end of the input. When reporting to diagnostics, the
+     * error is reported and the exception has no stack trace, and neither
+     * builds its message unless it is read.
+     */
+    private ParseException error(String message) {
+        int index = tokens.has(0) ? tokens.getIndex(0) : tokens.getIndex(-1) + tokens.getLiteral(-1).length();
+        if(diagnostics == null) {
+            return new ParseException(message + index, index);
+        }
+        Supplier<String> supplier = () -> message + index;
+        diagnostics.report(index, Diagnostics.Code.SYNTAX, supplier);
+        return new ParseException(supplier, index);
+    }
 
+    /**
+     * Sets the index of a node to that of the token it was parsed from, for
+     * the {@link SourceMap}, and returns the node.
+     */
+    private static <T extends Ast> T at(int index, T ast) {
+        ast.setIndex(index);
+        return ast;
     }
 
     /**
-     * As in the lexer, returns {@code true} if {@link #peek(Object...)} is true
-     * and advances the token stream.
+     * Returns {@code true} if the next token is a keyword or operator of the
+     * given kind. Unlike matching on literals, this compares the kind assigned
+     * when the token was created, so it neither allocates nor compares
+     * strings.
      */
-    private boolean match(Object... patterns) {
+    private boolean peek(Token.Kind kind) {
+        return tokens.has(0) && tokens.getKind(0) == kind;
+    }
 
-        boolean peek = peek(patterns);
+    /**
+     * Returns {@code true} if the next token is of the given type, such as
+     * {@link Token.Type#IDENTIFIER}.
+     */
+    private boolean peek(Token.Type type) {
+        return tokens.has(0) && tokens.getType(0) == type;
+    }
 
-        if(peek){
-            for(int i = 0; i < patterns.length; i++){
-                tokens.advance();
+    /**
+     * Returns {@code true} if {@link #peek(Token.Kind)} is true and advances
+     * the token stream.
+     */
+    private boolean match(Token.Kind kind) {
+        if (peek(kind)) {
+            tokens.advance();
+            //names may refer to other variables on either side of a block boundary
+            if (interner != null && (kind == Token.Kind.DO || kind == Token.Kind.ELSE || kind == Token.Kind.END)) {
+                interner.invalidate();
             }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if {@link #peek(Token.Type)} is true and advances
+     * the token stream.
+     */
+    private boolean match(Token.Type type) {
+        if (peek(type)) {
+            tokens.advance();
+            return true;
+        }
+        return false;
+    }
+
+    private static abstract class TokenStream {
+
+        /**
+         * Returns true if there is a token at index + offset.
+         */
+        public abstract boolean has(int offset);
+
+        /**
+         * Gets the token at index + offset.
+         */
+        public abstract Token get(int offset);
+
+        /**
+         * Advances to the next token, incrementing the index.
+         */
+        public abstract void advance();
+
+        public Token.Type getType(int offset) {
+            return get(offset).getType();
         }
 
-        return peek;
+        public Token.Kind getKind(int offset) {
+            return get(offset).getKind();
+        }
+
+        public String getLiteral(int offset) {
+            return get(offset).getLiteral();
+        }
+
+        public int getIndex(int offset) {
+            return get(offset).getIndex();
+        }
 
     }
 
-    private static final class TokenStream {
+    private static final class ListTokenStream extends TokenStream {
 
         private final List<Token> tokens;
+        private int index;
+
+        private ListTokenStream(List<Token> tokens, int index) {
+            this.tokens = tokens;
+            this.index = index;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            return index + offset < tokens.size();
+        }
+
+        @Override
+        public Token get(int offset) {
+            return tokens.get(index + offset);
+        }
+
+        @Override
+        public void advance() {
+            index++;
+        }
+
+    }
+
+    /**
+     * Reads tokens from the arrays of a {@link TokenBuffer}, so that only the
+     * literals the parser reads are created.
+     */
+    private static final class TokenBufferStream extends TokenStream {
+
+        private final TokenBuffer tokens;
         private int index = 0;
 
-        private TokenStream(List<Token> tokens) {
+        private TokenBufferStream(TokenBuffer tokens) {
             this.tokens = tokens;
         }
 
-        /**
-         * Returns true if there is a token at index + offset.
-         */
+        @Override
         public boolean has(int offset) {
             return index + offset < tokens.size();
         }
 
-        /**
-         * Gets the token at index + offset.
-         */
+        @Override
         public Token get(int offset) {
             return tokens.get(index + offset);
         }
 
-        /**
-         * Advances to the next token, incrementing the index.
-         */
+        @Override
+        public void advance() {
+            index++;
+        }
+
+        @Override
+        public Token.Type getType(int offset) {
+            return tokens.getType(index + offset);
+        }
+
+        @Override
+        public Token.Kind getKind(int offset) {
+            return tokens.getKind(index + offset);
+        }
+
+        @Override
+        public String getLiteral(int offset) {
+            return tokens.getLiteral(index + offset);
+        }
+
+        @Override
+        public int getIndex(int offset) {
+            return tokens.getIndex(index + offset);
+        }
+
+    }
+
+    /**
+     * Reads tokens from an iterator into a ring buffer which holds the
+     * previous token, for error positions and node indices, and up to two
+     * tokens of lookahead.
+     */
+    private static final class BufferedTokenStream extends TokenStream {
+
+        private static final int BEHIND = 1;
+        private static final int AHEAD = 2;
+
+        private final Iterator<Token> iterator;
+        private final Token[] buffer = new Token[4];
+        private int index = 0;
+        private int read = 0;
+
+        private BufferedTokenStream(Iterator<Token> iterator) {
+            this.iterator = iterator;
+        }
+
+        @Override
+        public boolean has(int offset) {
+            if (offset < -BEHIND || offset >= AHEAD) {
+                throw new IllegalArgumentException("Offset " + offset + " is outside the lookahead of the token buffer.");
+            }
+            while (read <= index + offset && iterator.hasNext()) {
+                buffer[read & (buffer.length - 1)] = iterator.next();
+                read++;
+            }
+            return index + offset >= 0 && index + offset < read;
+        }
+
+        @Override
+        public Token get(int offset) {
+            if (!has(offset)) {
+                throw new IndexOutOfBoundsException("Index: " + (index + offset) + ", Read: " + read);
+            }
+            return buffer[(index + offset) & (buffer.length - 1)];
+        }
+
+        @Override
         public void advance() {
             index++;
         }
@@ -35,13 +35,25 @@ public final class Scope {
     }
 
     public Environment.Variable lookupVariable(String name) {
-        if (variables.containsKey(name)) {
-            return variables.get(name);
-        } else if (parent != null) {
-            return parent.lookupVariable(name);
-        } else {
+        Environment.Variable variable = findVariable(name);
+        if (variable == null) {
             throw new RuntimeException("The variable " + name + " is not defined in this scope.");
         }
+        return variable;
+    }
+
+    /**
+     * Returns the variable with the given name in this scope or its parents,
+     * or {@code null} if there is none.
+     */
+    public Environment.Variable findVariable(String name) {
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            Environment.Variable variable = scope.variables.get(name);
+            if (variable != null) {
+                return variable;
+            }
+        }
+        return null;
     }
 
     public void defineFunction(String name, int arity, Function<List<Environment.PlcObject>, Environment.PlcObject> function) {
@@ -63,13 +75,26 @@ public final class Scope {
     }
 
     public Environment.Function lookupFunction(String name, int arity) {
-        if (functions.containsKey(name + "/" + arity)) {
-            return functions.get(name + "/" + arity);
-        } else if (parent != null) {
-            return parent.lookupFunction(name, arity);
-        } else {
+        Environment.Function function = findFunction(name, arity);
+        if (function == null) {
             throw new RuntimeException("The function " + name + "/" + arity + " is not defined in this scope.");
         }
+        return function;
+    }
+
+    /**
+     * Returns the function with the given name and arity in this scope or its
+     * parents, or {@code null} if there is none.
+     */
+    public Environment.Function findFunction(String name, int arity) {
+        String key = name + "/" + arity;
+        for (Scope scope = this; scope != null; scope = scope.parent) {
+            Environment.Function function = scope.functions.get(key);
+            if (function != null) {
+                return function;
+            }
+        }
+        return null;
     }
 
     @Override
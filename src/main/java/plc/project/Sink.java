@@ -0,0 +1,216 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * The output the {@link Generator} writes generated code to. Implementations
+ * are not synchronized; a sink is expected to be owned by a single generator.
+ */
+public interface Sink {
+
+    void write(char c);
+
+    void write(String string);
+
+    void write(char[] chars, int offset, int length);
+
+    /**
+     * Writes any buffered output to the underlying destination, if there is
+     * one.
+     */
+    default void flush() {}
+
+    /**
+     * An in-memory sink backed by a {@link StringBuilder}.
+     */
+    final class Builder implements Sink {
+
+        private final StringBuilder builder;
+
+        public Builder() {
+            this(new StringBuilder());
+        }
+
+        public Builder(StringBuilder builder) {
+            this.builder = builder;
+        }
+
+        public StringBuilder getBuilder() {
+            return builder;
+        }
+
+        @Override
+        public void write(char c) {
+            builder.append(c);
+        }
+
+        @Override
+        public void write(String string) {
+            builder.append(string);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            builder.append(chars, offset, length);
+        }
+
+        /**
+         * Returns the output as a {@link CharBuffer} view, without copying it
+         * into a new {@link String}.
+         */
+        public CharBuffer toCharBuffer() {
+            return CharBuffer.wrap(builder);
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+
+    }
+
+    /**
+     * A sink that encodes output as UTF-8 into a (direct) {@link ByteBuffer}
+     * and drains it to a channel, such as a {@link java.nio.channels.FileChannel},
+     * whenever it fills up and on {@link #flush()}.
+     */
+    final class Utf8 implements Sink {
+
+        private final ByteBuffer buffer;
+        private final WritableByteChannel channel;
+        private char highSurrogate = 0;
+
+        public Utf8(WritableByteChannel channel) {
+            this(channel, ByteBuffer.allocateDirect(1 << 16));
+        }
+
+        public Utf8(WritableByteChannel channel, ByteBuffer buffer) {
+            if (buffer.capacity() < 4) {
+                throw new IllegalArgumentException("Buffer capacity must be at least 4 bytes.");
+            }
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(char c) {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            encode(c);
+        }
+
+        @Override
+        public void write(String string) {
+            for (int i = 0; i < string.length(); i++) {
+                if (buffer.remaining() < 4) {
+                    drain();
+                }
+                encode(string.charAt(i));
+            }
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer.remaining() < 4) {
+                    drain();
+                }
+                encode(chars[i]);
+            }
+        }
+
+        private void encode(char c) {
+            if (highSurrogate != 0) {
+                char high = highSurrogate;
+                highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    int codePoint = Character.toCodePoint(high, c);
+                    buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                    buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                    buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+                    return;
+                }
+                buffer.put((byte) '?');
+            }
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c)) {
+                highSurrogate = c;
+            } else if (Character.isLowSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+
+        private void drain() {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                buffer.clear();
+            }
+        }
+
+        @Override
+        public void flush() {
+            //a high surrogate left without its low surrogate is unpaired, as mid-output
+            if (highSurrogate != 0) {
+                highSurrogate = 0;
+                buffer.put((byte) '?');
+            }
+            drain();
+        }
+
+    }
+
+    /**
+     * Adapts an existing {@link PrintWriter}.
+     */
+    final class Writer implements Sink {
+
+        private final PrintWriter writer;
+
+        public Writer(PrintWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(char c) {
+            writer.write(c);
+        }
+
+        @Override
+        public void write(String string) {
+            writer.write(string);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            writer.write(chars, offset, length);
+        }
+
+        @Override
+        public void flush() {
+            writer.flush();
+        }
+
+    }
+
+}
@@ -0,0 +1,129 @@
+package plc.project;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Maps positions in the Java source emitted by the {@link Generator} back to
+ * the tokens of the original program, so that profiler samples and stack
+ * traces which point at {@code Main.java} can be attributed to the source
+ * they were generated from. Each entry records the generated line (starting
+ * at 1) and column (starting at 0) where a node was emitted, and the index of
+ * the token the node was parsed from. Entries are stored in parallel arrays
+ * in the order they were emitted, so lines never decrease.
+ */
+public final class SourceMap {
+
+    private int[] lines = new int[64];
+    private int[] columns = new int[64];
+    private int[] indices = new int[64];
+    private int size = 0;
+
+    public void add(int line, int column, int index) {
+        if (size == lines.length) {
+            lines = Arrays.copyOf(lines, size * 2);
+            columns = Arrays.copyOf(columns, size * 2);
+            indices = Arrays.copyOf(indices, size * 2);
+        }
+        lines[size] = line;
+        columns[size] = column;
+        indices[size] = index;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getLine(int entry) {
+        return lines[entry];
+    }
+
+    public int getColumn(int entry) {
+        return columns[entry];
+    }
+
+    public int getIndex(int entry) {
+        return indices[entry];
+    }
+
+    /**
+     * Returns the token index of the first node emitted on the given line, or
+     * on the closest line before it if the line has none (such as a line with
+     * only a closing brace). Returns {@code -1} if no node was emitted on or
+     * before the line.
+     */
+    public int lookup(int line) {
+        int low = 0;
+        int high = size;
+        //finds the first entry on a later line
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (lines[middle] <= line) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        if (low == 0) {
+            return -1;
+        }
+        int entry = low - 1;
+        while (entry > 0 && lines[entry - 1] == lines[low - 1]) {
+            entry--;
+        }
+        return indices[entry];
+    }
+
+    /**
+     * Writes the map as a sidecar file, with one {@code line:column index}
+     * entry per line.
+     */
+    public void write(Appendable appendable) {
+        try {
+            for (int i = 0; i < size; i++) {
+                appendable.append(Integer.toString(lines[i])).append(':').append(Integer.toString(columns[i]))
+                        .append(' ').append(Integer.toString(indices[i])).append(System.lineSeparator());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the map as a JSR-45 source map (SMAP) from the lines of
+     * {@code generatedName} to the lines of {@code source}, using the first
+     * node emitted on each generated line. This is the format of the
+     * {@code SourceDebugExtension} class file attribute.
+     */
+    public String toSmap(String generatedName, String sourceName, CharSequence source) {
+        int[] starts = new int[16];
+        int count = 1;
+        for (int i = 0; i < source.length(); i++) {
+            if (source.charAt(i) == '\n') {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                }
+                starts[count++] = i + 1;
+            }
+        }
+        String separator = System.lineSeparator();
+        StringBuilder builder = new StringBuilder();
+        builder.append("SMAP").append(separator).append(generatedName).append(separator).append("Plc").append(separator);
+        builder.append("*S Plc").append(separator).append("*F").append(separator).append("1 ").append(sourceName).append(separator);
+        builder.append("*L").append(separator);
+        for (int i = 0; i < size; i++) {
+            if (i > 0 && lines[i] == lines[i - 1]) {
+                continue;
+            }
+            int line = Arrays.binarySearch(starts, 0, count, indices[i]);
+            //a miss returns -(insertion point) - 1, and the line is the one before it
+            line = line >= 0 ? line + 1 : -line - 1;
+            builder.append(line).append("#1:").append(lines[i]).append(separator);
+        }
+        builder.append("*E").append(separator);
+        return builder.toString();
+    }
+
+}
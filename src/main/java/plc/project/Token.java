@@ -1,5 +1,9 @@
 package plc.project;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
 public final class Token {
 
     public enum Type {
@@ -11,7 +15,106 @@ public final class Token {
         OPERATOR
     }
 
+    /**
+     * The keywords and operators of the grammar, so that the parser can match
+     * them by identity instead of comparing literals. Every other token,
+     * including identifiers and literals, is {@link #OTHER}.
+     */
+    public enum Kind {
+        LET("LET"),
+        DEF("DEF"),
+        DO("DO"),
+        END("END"),
+        IF("IF"),
+        ELSE("ELSE"),
+        FOR("FOR"),
+        IN("IN"),
+        WHILE("WHILE"),
+        RETURN("RETURN"),
+        NIL("NIL"),
+        TRUE("TRUE"),
+        FALSE("FALSE"),
+        AND("AND"),
+        OR("OR"),
+        LEFT_PAREN("("),
+        RIGHT_PAREN(")"),
+        COLON(":"),
+        SEMICOLON(";"),
+        COMMA(","),
+        DOT("."),
+        ASSIGN("="),
+        PLUS("+"),
+        MINUS("-"),
+        TIMES("*"),
+        DIVIDE("/"),
+        EQUAL("=="),
+        NOT_EQUAL("!="),
+        LESS("<"),
+        LESS_EQUAL("<="),
+        GREATER(">"),
+        GREATER_EQUAL(">="),
+        OTHER(null);
+
+        private static final Map<String, Kind> KINDS = new HashMap<>();
+        private static final Kind[][] BY_FIRST = new Kind[128][0];
+
+        static {
+            for (Kind kind : values()) {
+                if (kind.literal != null) {
+                    KINDS.put(kind.literal, kind);
+                    Kind[] kinds = BY_FIRST[kind.literal.charAt(0)];
+                    kinds = Arrays.copyOf(kinds, kinds.length + 1);
+                    kinds[kinds.length - 1] = kind;
+                    BY_FIRST[kind.literal.charAt(0)] = kinds;
+                }
+            }
+        }
+
+        private final String literal;
+
+        Kind(String literal) {
+            this.literal = literal;
+        }
+
+        /**
+         * Returns the literal of tokens of this kind, or {@code null} for
+         * {@link #OTHER}.
+         */
+        public String getLiteral() {
+            return literal;
+        }
+
+        /**
+         * Returns the kind of the keyword or operator written by the given
+         * characters of the source, or {@link #OTHER}, without creating a
+         * string for them.
+         */
+        static Kind of(CharSequence source, int start, int length) {
+            char first = source.charAt(start);
+            if (first >= BY_FIRST.length) {
+                return OTHER;
+            }
+            for (Kind kind : BY_FIRST[first]) {
+                if (kind.literal.length() == length && regionMatches(source, start, kind.literal)) {
+                    return kind;
+                }
+            }
+            return OTHER;
+        }
+
+        private static boolean regionMatches(CharSequence source, int start, String literal) {
+            for (int i = 1; i < literal.length(); i++) {
+                if (source.charAt(start + i) != literal.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
     private final Type type;
+    private final Kind kind;
     private final String literal;
     private final int index;
 
@@ -19,12 +122,18 @@ public final class Token {
         this.type = type;
         this.literal = literal;
         this.index = index;
+        //literals such as the string "DEF" keep their quotes, so only these types can be keywords
+        this.kind = type == Type.IDENTIFIER || type == Type.OPERATOR ? Kind.KINDS.getOrDefault(literal, Kind.OTHER) : Kind.OTHER;
     }
 
     public Type getType() {
         return type;
     }
 
+    public Kind getKind() {
+        return kind;
+    }
+
     public String getLiteral() {
         return literal;
     }
@@ -0,0 +1,96 @@
+package plc.project;
+
+import java.util.Arrays;
+
+/**
+ * The tokens of a source, stored as parallel arrays of their type, kind,
+ * start and length over the shared source text instead of as {@link Token}
+ * objects, which is about 10 bytes per token instead of a token, its literal
+ * and the literal's characters. Literals are only copied out of the source
+ * when they are read, which the {@link Parser} does for identifiers and
+ * literal values but not for keywords and operators.
+ */
+public final class TokenBuffer {
+
+    private static final Token.Type[] TYPES = Token.Type.values();
+    private static final Token.Kind[] KINDS = Token.Kind.values();
+
+    private final CharSequence source;
+    private byte[] types = new byte[64];
+    private byte[] kinds = new byte[64];
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private int size = 0;
+
+    public TokenBuffer(CharSequence source) {
+        this.source = source;
+    }
+
+    /**
+     * Adds the token of the given type at the given characters of the
+     * source.
+     */
+    public void add(Token.Type type, int start, int length) {
+        if (size == types.length) {
+            types = Arrays.copyOf(types, size * 2);
+            kinds = Arrays.copyOf(kinds, size * 2);
+            starts = Arrays.copyOf(starts, size * 2);
+            lengths = Arrays.copyOf(lengths, size * 2);
+        }
+        //only these types can be keywords, as in Token
+        Token.Kind kind = type == Token.Type.IDENTIFIER || type == Token.Type.OPERATOR ? Token.Kind.of(source, start, length) : Token.Kind.OTHER;
+        types[size] = (byte) type.ordinal();
+        kinds[size] = (byte) kind.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public CharSequence getSource() {
+        return source;
+    }
+
+    public Token.Type getType(int token) {
+        return TYPES[types[token]];
+    }
+
+    public Token.Kind getKind(int token) {
+        return KINDS[kinds[token]];
+    }
+
+    /**
+     * Returns the index of the token, which is the offset of its first
+     * character in the source.
+     */
+    public int getIndex(int token) {
+        return starts[token];
+    }
+
+    public int getLength(int token) {
+        return lengths[token];
+    }
+
+    /**
+     * Returns the literal of the token, copied from the source. A keyword or
+     * operator returns the shared literal of its kind instead.
+     */
+    public String getLiteral(int token) {
+        Token.Kind kind = getKind(token);
+        if (kind != Token.Kind.OTHER) {
+            return kind.getLiteral();
+        }
+        return source.subSequence(starts[token], starts[token] + lengths[token]).toString();
+    }
+
+    /**
+     * Returns the token as a {@link Token}.
+     */
+    public Token get(int token) {
+        return new Token(getType(token), getLiteral(token), getIndex(token));
+    }
+
+}
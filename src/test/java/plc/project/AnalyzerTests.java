@@ -0,0 +1,142 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+public class AnalyzerTests {
+
+    @Test
+    void testDiagnostics() {
+        // LET x: Integer = "x";
+        // DEF f(): Integer DO RETURN y; END
+        // DEF g() DO undefined(); END
+        // DEF main(): Integer DO RETURN 0; END
+        Ast.Source ast = new Ast.Source(
+                Arrays.asList(index(0, new Ast.Field("x", "Integer", Optional.of(index(17, new Ast.Expr.Literal("x")))))),
+                Arrays.asList(
+                        index(22, new Ast.Method("f", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                                new Ast.Stmt.Return(index(50, new Ast.Expr.Access(Optional.empty(), "y")))
+                        ))),
+                        index(57, new Ast.Method("g", Arrays.asList(), Arrays.asList(), Optional.empty(), Arrays.asList(
+                                new Ast.Stmt.Expression(index(68, new Ast.Expr.Function(Optional.empty(), "undefined", Arrays.asList())))
+                        ))),
+                        index(85, new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                                new Ast.Stmt.Return(new Ast.Expr.Literal(BigInteger.ZERO))
+                        )))
+                )
+        );
+        Diagnostics diagnostics = new Diagnostics();
+        Analyzer analyzer = new Analyzer(new Scope(null));
+        analyzer.setDiagnostics(diagnostics);
+        analyzer.visit(ast);
+        Assertions.assertEquals(Arrays.asList(Diagnostics.Code.TYPE_MISMATCH, Diagnostics.Code.UNDEFINED_VARIABLE, Diagnostics.Code.UNDEFINED_FUNCTION),
+                diagnostics.getDiagnostics().stream().map(Diagnostics.Diagnostic::getCode).collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList(0, 50, 68),
+                diagnostics.getDiagnostics().stream().map(Diagnostics.Diagnostic::getIndex).collect(Collectors.toList()));
+        Assertions.assertEquals("The variable y is not defined in this scope.", diagnostics.getDiagnostics().get(1).getMessage());
+        Assertions.assertEquals(Environment.Type.INTEGER, ast.getMethods().get(2).getFunction().getReturnType());
+        //DEF main() DO END, which does not return an Integer, and no main at all
+        Assertions.assertEquals(Diagnostics.Code.INVALID, analyzeMain(Arrays.asList(new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.empty(), Arrays.asList()))));
+        Assertions.assertEquals(Diagnostics.Code.UNDEFINED_FUNCTION, analyzeMain(Arrays.asList()));
+        //errors from the scope and environment: main defined twice, and an unknown type
+        Ast.Method main = new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                new Ast.Stmt.Return(Ast.Expr.Literal.ofInteger(0))
+        ));
+        Assertions.assertEquals(Diagnostics.Code.INVALID, analyzeMain(Arrays.asList(main, main)));
+        Assertions.assertEquals(Diagnostics.Code.INVALID, analyzeMain(Arrays.asList(main, new Ast.Method("f", Arrays.asList("a"), Arrays.asList("Float"), Optional.empty(), Arrays.asList()))));
+        //a bug in the analyzer is not an error in the source
+        Assertions.assertThrows(NullPointerException.class, () -> analyzeMain(Arrays.asList(new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList((Ast.Stmt) null)))));
+    }
+
+    @Test
+    void testAnalysis() {
+        String source = String.join("\n",
+                "LET total: Integer = 0;",
+                "DEF main(): Integer DO",
+                "    LET name = \"n\" + total;",
+                "    log(name.length + 1);",
+                "    RETURN 0;",
+                "END"
+        );
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        Ast.Source copy = new Parser(new Lexer(source).lex()).parseSource();
+        //the same tree is analyzed for both scopes at once
+        CompletableFuture<Analysis> first = CompletableFuture.supplyAsync(() -> analyze(ast, "first.log"));
+        CompletableFuture<Analysis> second = CompletableFuture.supplyAsync(() -> analyze(ast, "second.log"));
+        CompletableFuture.allOf(first, second).join();
+        Assertions.assertEquals(copy, ast);
+        Assertions.assertNull(Ast.analysis(ast.getFields().get(0)));
+        Assertions.assertThrows(IllegalStateException.class, () -> ast.getMethods().get(0).getFunction());
+        Ast.Stmt.Expression log = (Ast.Stmt.Expression) ast.getMethods().get(0).getStatements().get(1);
+        Assertions.assertEquals("first.log", first.join().getFunction(log.getExpression()).getJvmName());
+        Assertions.assertEquals("second.log", second.join().getFunction(log.getExpression()).getJvmName());
+        Assertions.assertEquals(Environment.Type.INTEGER, first.join().getType(((Ast.Expr.Function) log.getExpression()).getArguments().get(0)));
+        //generating from the analysis is the same as from an analyzed tree
+        Analyzer analyzer = new Analyzer(scope("first.log"));
+        analyzer.visit(copy);
+        Assertions.assertEquals(generate(copy, null), generate(ast, first.join()));
+        Assertions.assertEquals(generate(copy, null).replace("first.log", "second.log"), generate(ast, second.join()));
+    }
+
+    /**
+     * Analyzes a source of the given methods with diagnostics, returning the
+     * code of its only error.
+     */
+    private static Diagnostics.Code analyzeMain(List<Ast.Method> methods) {
+        Diagnostics diagnostics = new Diagnostics();
+        Analyzer analyzer = new Analyzer(new Scope(null));
+        analyzer.setDiagnostics(diagnostics);
+        analyzer.visit(new Ast.Source(Arrays.asList(), methods));
+        Assertions.assertEquals(1, diagnostics.getDiagnostics().size());
+        return diagnostics.getDiagnostics().get(0).getCode();
+    }
+
+    private static Analysis analyze(Ast.Source ast, String log) {
+        Analysis analysis = new Analysis();
+        Analyzer analyzer = new Analyzer(scope(log));
+        analyzer.setAnalysis(analysis);
+        analyzer.visit(ast);
+        return analysis;
+    }
+
+    private static Scope scope(String log) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("log", log, Arrays.asList(Environment.Type.INTEGER), Environment.Type.NIL, args -> Environment.NIL);
+        return scope;
+    }
+
+    private static String generate(Ast.Source ast, Analysis analysis) {
+        StringWriter writer = new StringWriter();
+        Generator generator = new Generator(new PrintWriter(writer));
+        generator.setAnalysis(analysis);
+        generator.visit(ast);
+        return writer.toString();
+    }
+
+    @Test
+    void testException() {
+        // DEF main(): Integer DO RETURN y; END
+        Ast.Source ast = new Ast.Source(Arrays.asList(), Arrays.asList(
+                new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                        new Ast.Stmt.Return(new Ast.Expr.Access(Optional.empty(), "y"))
+                ))
+        ));
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> new Analyzer(new Scope(null)).visit(ast));
+        Assertions.assertEquals("The variable y is not defined in this scope.", exception.getMessage());
+    }
+
+    private static <T extends Ast> T index(int index, T ast) {
+        ast.setIndex(index);
+        return ast;
+    }
+
+}
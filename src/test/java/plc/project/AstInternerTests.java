@@ -0,0 +1,76 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class AstInternerTests {
+
+    @Test
+    void testShared() {
+        String source = String.join("\n",
+                "DEF f(s: String): Integer DO",
+                "    print(s.length * 2 + 1);",
+                "    print(s.length * 2 - 1);",
+                "    RETURN s.length * 2;",
+                "END"
+        );
+        AstInterner interner = new AstInterner();
+        Parser parser = new Parser(new Lexer(source).lex());
+        parser.setInterner(interner);
+        Ast.Source ast = parser.parseSource();
+        Assertions.assertEquals(new Parser(new Lexer(source).lex()).parseSource(), ast);
+        Ast.Expr first = ((Ast.Expr.Binary) argument(ast, 0)).getLeft();
+        Ast.Expr second = ((Ast.Expr.Binary) argument(ast, 1)).getLeft();
+        Assertions.assertSame(first, second);
+        Assertions.assertSame(first, ((Ast.Stmt.Return) ast.getMethods().get(0).getStatements().get(2)).getValue());
+        Assertions.assertEquals(source.indexOf("*"), first.getIndex());
+        // s, s.length, 2 and s.length * 2 twice each, and the literal 1 once
+        Assertions.assertEquals(9, interner.getDeduplicated());
+    }
+
+    @Test
+    void testScopes() {
+        String source = String.join("\n",
+                "LET x: Integer = 1;",
+                "DEF main(): Integer DO",
+                "    print(x + 1);",
+                "    LET x: String = \"s\";",
+                "    print(x + 1);",
+                "    IF TRUE DO",
+                "        LET x: Decimal = 1.5;",
+                "        print(x + 1.0);",
+                "    ELSE",
+                "        print(x + 1);",
+                "    END",
+                "    FOR x IN repeat(1, 2) DO",
+                "        print(x + 1);",
+                "    END",
+                "    print(x + 1);",
+                "    RETURN 0;",
+                "END"
+        );
+        Parser parser = new Parser(new Lexer(source).lex());
+        parser.setInterner(new AstInterner());
+        //the types of the x + 1 expressions are those of separate nodes
+        Assertions.assertEquals(analyze(new Parser(new Lexer(source).lex()).parseSource()), analyze(parser.parseSource()));
+    }
+
+    private static Ast.Expr argument(Ast.Source ast, int statement) {
+        Ast.Stmt.Expression expression = (Ast.Stmt.Expression) ast.getMethods().get(0).getStatements().get(statement);
+        return ((Ast.Expr.Function) expression.getExpression()).getArguments().get(0);
+    }
+
+    private static String analyze(Ast.Source ast) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("repeat", "java.util.Collections.nCopies", Arrays.asList(Environment.Type.INTEGER, Environment.Type.INTEGER), Environment.Type.INTEGER_ITERABLE, args -> Environment.NIL);
+        new Analyzer(scope).visit(ast);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return ast + writer.toString();
+    }
+
+}
@@ -0,0 +1,208 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Runs each program through both the Java source backend and the bytecode
+ * backend and compares the output and result of {@code main}.
+ */
+public class BytecodeGeneratorTests {
+
+    private static final InMemoryCompiler COMPILER = new InMemoryCompiler();
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testSource(String test, Ast.Source ast, String expected) {
+        Scope scope = new Scope(null);
+        scope.defineFunction("repeat", "java.util.Collections.nCopies", Arrays.asList(Environment.Type.INTEGER, Environment.Type.INTEGER), Environment.Type.INTEGER_ITERABLE, args -> Environment.NIL);
+        new Analyzer(scope).visit(ast);
+
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        String source = run(InMemoryCompiler.load(COMPILER.compile("Main", writer.toString())));
+
+        BytecodeGenerator generator = new BytecodeGenerator();
+        generator.visit(ast);
+        String bytecode = run(InMemoryCompiler.load(Collections.singletonMap("Main", generator.getBytes())));
+
+        Assertions.assertEquals(expected, source);
+        Assertions.assertEquals(source, bytecode);
+    }
+
+    private static Stream<Arguments> testSource() {
+        return Stream.of(
+                Arguments.of("Hello, World!",
+                        // DEF main(): Integer DO
+                        //     print("Hello, World!");
+                        //     RETURN 0;
+                        // END
+                        new Ast.Source(Arrays.asList(), Arrays.asList(
+                                new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                                        statement(call("print", literal("Hello, World!"))),
+                                        new Ast.Stmt.Return(literal(BigInteger.ZERO))
+                                ))
+                        )),
+                        lines("Hello, World!", "=0")
+                ),
+                Arguments.of("Fibonacci",
+                        // LET count: Integer = 0;
+                        // DEF fib(n: Integer): Integer DO
+                        //     count = count + 1;
+                        //     LET result = n;
+                        //     IF n > 1 DO
+                        //         result = fib(n - 1) + fib(n - 2);
+                        //     ELSE
+                        //         print(n);
+                        //     END
+                        //     RETURN result;
+                        // END
+                        // DEF main(): Integer DO
+                        //     LET i = 0;
+                        //     WHILE i < 5 DO
+                        //         print(fib(i));
+                        //         i = i + 1;
+                        //     END
+                        //     print(count);
+                        //     RETURN 0;
+                        // END
+                        new Ast.Source(
+                                Arrays.asList(new Ast.Field("count", "Integer", Optional.of(literal(BigInteger.ZERO)))),
+                                Arrays.asList(
+                                        new Ast.Method("fib", Arrays.asList("n"), Arrays.asList("Integer"), Optional.of("Integer"), Arrays.asList(
+                                                new Ast.Stmt.Assignment(access("count"), new Ast.Expr.Binary("+", access("count"), literal(BigInteger.ONE))),
+                                                new Ast.Stmt.Declaration("result", Optional.of(access("n"))),
+                                                new Ast.Stmt.If(new Ast.Expr.Binary(">", access("n"), literal(BigInteger.ONE)),
+                                                        Arrays.asList(new Ast.Stmt.Assignment(access("result"), new Ast.Expr.Binary("+",
+                                                                call("fib", new Ast.Expr.Binary("-", access("n"), literal(BigInteger.ONE))),
+                                                                call("fib", new Ast.Expr.Binary("-", access("n"), literal(BigInteger.valueOf(2))))
+                                                        ))),
+                                                        Arrays.asList(statement(call("print", access("n"))))
+                                                ),
+                                                new Ast.Stmt.Return(access("result"))
+                                        )),
+                                        new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                                                new Ast.Stmt.Declaration("i", Optional.of(literal(BigInteger.ZERO))),
+                                                new Ast.Stmt.While(new Ast.Expr.Binary("<", access("i"), literal(BigInteger.valueOf(5))), Arrays.asList(
+                                                        statement(call("print", call("fib", access("i")))),
+                                                        new Ast.Stmt.Assignment(access("i"), new Ast.Expr.Binary("+", access("i"), literal(BigInteger.ONE)))
+                                                )),
+                                                statement(call("print", access("count"))),
+                                                new Ast.Stmt.Return(literal(BigInteger.ZERO))
+                                        ))
+                                )
+                        ),
+                        lines("0", "0", "1", "1", "1", "0", "1", "1", "0", "1", "2", "1", "0", "1", "1", "0", "3", "19", "=0")
+                ),
+                Arguments.of("Values",
+                        // DEF main(): Integer DO
+                        //     LET s = "abc";
+                        //     LET d: Decimal = 1.5;
+                        //     print(s.slice(1, 3));
+                        //     print("s=" + s + ", d=" + (d * 2.0) + 'c' + TRUE);
+                        //     print(d > 1.0 AND s == s OR FALSE);
+                        //     print('x');
+                        //     print(-7 / 2);
+                        //     RETURN s.length;
+                        // END
+                        new Ast.Source(Arrays.asList(), Arrays.asList(
+                                new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                                        new Ast.Stmt.Declaration("s", Optional.of(literal("abc"))),
+                                        new Ast.Stmt.Declaration("d", Optional.of("Decimal"), Optional.of(literal(new BigDecimal("1.5")))),
+                                        statement(call("print", new Ast.Expr.Function(Optional.of(access("s")), "slice", Arrays.asList(literal(BigInteger.ONE), literal(BigInteger.valueOf(3)))))),
+                                        statement(call("print", new Ast.Expr.Binary("+", new Ast.Expr.Binary("+", new Ast.Expr.Binary("+", new Ast.Expr.Binary("+", new Ast.Expr.Binary("+",
+                                                literal("s="), access("s")), literal(", d=")),
+                                                new Ast.Expr.Group(new Ast.Expr.Binary("*", access("d"), literal(new BigDecimal("2.0"))))),
+                                                literal('c')), literal(true)))),
+                                        statement(call("print", new Ast.Expr.Binary("OR", new Ast.Expr.Binary("AND",
+                                                new Ast.Expr.Binary(">", access("d"), literal(new BigDecimal("1.0"))),
+                                                new Ast.Expr.Binary("==", access("s"), access("s"))),
+                                                literal(false)))),
+                                        statement(call("print", literal('x'))),
+                                        statement(call("print", new Ast.Expr.Binary("/", literal(BigInteger.valueOf(-7)), literal(BigInteger.valueOf(2))))),
+                                        new Ast.Stmt.Return(new Ast.Expr.Access(Optional.of(access("s")), "length"))
+                                ))
+                        )),
+                        lines("bc", "s=abc, d=3.0ctrue", "true", "x", "-3", "=3")
+                ),
+                Arguments.of("For",
+                        // DEF main(): Integer DO
+                        //     LET total = 0;
+                        //     FOR i IN repeat(3, 7) DO
+                        //         total = total + i;
+                        //     END
+                        //     print(total);
+                        //     RETURN total;
+                        // END
+                        new Ast.Source(Arrays.asList(), Arrays.asList(
+                                new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                                        new Ast.Stmt.Declaration("total", Optional.of(literal(BigInteger.ZERO))),
+                                        new Ast.Stmt.For("i", call("repeat", literal(BigInteger.valueOf(3)), literal(BigInteger.valueOf(7))), Arrays.asList(
+                                                new Ast.Stmt.Assignment(access("total"), new Ast.Expr.Binary("+", access("total"), access("i")))
+                                        )),
+                                        statement(call("print", access("total"))),
+                                        new Ast.Stmt.Return(access("total"))
+                                ))
+                        )),
+                        lines("21", "=21")
+                )
+        );
+    }
+
+    /**
+     * Invokes {@code new Main().main()} with the loaded class, returning the
+     * printed output followed by the result.
+     */
+    private static String run(ClassLoader loader) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            Class<?> main = loader.loadClass("Main");
+            Method method = main.getDeclaredMethod("main");
+            method.setAccessible(true);
+            System.setOut(new PrintStream(bytes, true));
+            Object result = method.invoke(main.getDeclaredConstructor().newInstance());
+            System.out.flush();
+            return bytes.toString() + "=" + result;
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        } finally {
+            System.setOut(out);
+        }
+    }
+
+    private static String lines(String... lines) {
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    private static Ast.Expr.Literal literal(Object value) {
+        return new Ast.Expr.Literal(value);
+    }
+
+    private static Ast.Expr.Access access(String name) {
+        return new Ast.Expr.Access(Optional.empty(), name);
+    }
+
+    private static Ast.Expr.Function call(String name, Ast.Expr... arguments) {
+        return new Ast.Expr.Function(Optional.empty(), name, Arrays.asList(arguments));
+    }
+
+    private static Ast.Stmt.Expression statement(Ast.Expr.Function function) {
+        return new Ast.Stmt.Expression(function);
+    }
+
+}
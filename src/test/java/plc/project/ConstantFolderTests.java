@@ -0,0 +1,115 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class ConstantFolderTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testExpression(String test, Ast.Expr ast, Ast.Expr expected) {
+        Assertions.assertEquals(expected, new ConstantFolder().visit(ast));
+    }
+
+    private static Stream<Arguments> testExpression() {
+        return Stream.of(
+                Arguments.of("Precedence",
+                        // 1 + 2 * 3
+                        binary("+", integer(1), binary("*", integer(2), integer(3), Environment.Type.INTEGER), Environment.Type.INTEGER),
+                        integer(7)
+                ),
+                Arguments.of("Integer Overflow",
+                        // 2147483647 + 1
+                        binary("+", integer(Integer.MAX_VALUE), integer(1), Environment.Type.INTEGER),
+                        integer(Integer.MIN_VALUE)
+                ),
+                Arguments.of("Division By Zero",
+                        // 1 / 0
+                        binary("/", integer(1), integer(0), Environment.Type.INTEGER),
+                        binary("/", integer(1), integer(0), Environment.Type.INTEGER)
+                ),
+                Arguments.of("Decimal",
+                        // 0.1 + 0.2
+                        binary("+", decimal("0.1"), decimal("0.2"), Environment.Type.DECIMAL),
+                        decimal("0.30000000000000004")
+                ),
+                Arguments.of("Nested Groups",
+                        // ((1 + 2)) * 3
+                        binary("*", group(group(binary("+", integer(1), integer(2), Environment.Type.INTEGER))), integer(3), Environment.Type.INTEGER),
+                        integer(9)
+                ),
+                Arguments.of("Negative Group",
+                        // (1 - 2)
+                        group(binary("-", integer(1), integer(2), Environment.Type.INTEGER)),
+                        group(integer(-1))
+                ),
+                Arguments.of("Concatenation",
+                        // "a" + 1 + 2.50 + 'c' + TRUE
+                        binary("+", binary("+", binary("+", binary("+", string("a"), integer(1), Environment.Type.STRING), decimal("2.50"), Environment.Type.STRING), character('c'), Environment.Type.STRING), bool(true), Environment.Type.STRING),
+                        string("a12.5ctrue")
+                ),
+                Arguments.of("Logical",
+                        // TRUE AND (FALSE OR 1 < 2)
+                        binary("AND", bool(true), group(binary("OR", bool(false), binary("<", integer(1), integer(2), Environment.Type.BOOLEAN), Environment.Type.BOOLEAN)), Environment.Type.BOOLEAN),
+                        bool(true)
+                ),
+                Arguments.of("String Equality",
+                        // "a" == "a"
+                        binary("==", string("a"), string("a"), Environment.Type.BOOLEAN),
+                        binary("==", string("a"), string("a"), Environment.Type.BOOLEAN)
+                )
+        );
+    }
+
+    private static Ast.Expr.Literal integer(int value) {
+        return init(new Ast.Expr.Literal(BigInteger.valueOf(value)), ast -> ast.setType(Environment.Type.INTEGER));
+    }
+
+    private static Ast.Expr.Literal decimal(String value) {
+        return init(new Ast.Expr.Literal(new BigDecimal(value)), ast -> ast.setType(Environment.Type.DECIMAL));
+    }
+
+    private static Ast.Expr.Literal string(String value) {
+        return init(new Ast.Expr.Literal(value), ast -> ast.setType(Environment.Type.STRING));
+    }
+
+    private static Ast.Expr.Literal character(char value) {
+        return init(new Ast.Expr.Literal(value), ast -> ast.setType(Environment.Type.CHARACTER));
+    }
+
+    private static Ast.Expr.Literal bool(boolean value) {
+        return init(new Ast.Expr.Literal(value), ast -> ast.setType(Environment.Type.BOOLEAN));
+    }
+
+    private static Ast.Expr.Group group(Ast.Expr.Binary expression) {
+        return init(new Ast.Expr.Group(expression), ast -> ast.setType(expression.getType()));
+    }
+
+    private static Ast.Expr.Group group(Ast.Expr.Group expression) {
+        return init(new Ast.Expr.Group(expression), ast -> ast.setType(expression.getType()));
+    }
+
+    private static Ast.Expr.Group group(Ast.Expr.Literal expression) {
+        return init(new Ast.Expr.Group(expression), ast -> ast.setType(expression.getType()));
+    }
+
+    private static Ast.Expr.Binary binary(String operator, Ast.Expr left, Ast.Expr right, Environment.Type type) {
+        return init(new Ast.Expr.Binary(operator, left, right), ast -> ast.setType(type));
+    }
+
+    /**
+     * Runs a callback on the given value, used for inline initialization.
+     */
+    private static <T> T init(T value, Consumer<T> initializer) {
+        initializer.accept(value);
+        return value;
+    }
+
+}
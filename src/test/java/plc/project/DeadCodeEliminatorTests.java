@@ -0,0 +1,117 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+public class DeadCodeEliminatorTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testMethod(String test, List<Ast.Stmt> statements, List<Ast.Stmt> expected, int removed) {
+        DeadCodeEliminator eliminator = new DeadCodeEliminator();
+        Ast.Method ast = new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), statements);
+        ast.setFunction(new Environment.Function("main", "main", Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL));
+        Ast.Method method = (Ast.Method) eliminator.visit(ast);
+        Assertions.assertEquals(expected, method.getStatements());
+        Assertions.assertEquals(ast.getFunction(), method.getFunction());
+        Assertions.assertEquals(removed, eliminator.getRemovedNodes());
+    }
+
+    private static Stream<Arguments> testMethod() {
+        return Stream.of(
+                Arguments.of("Reachable",
+                        // print(1); RETURN 1;
+                        Arrays.asList(print(1), ret(1)),
+                        Arrays.asList(print(1), ret(1)),
+                        0
+                ),
+                Arguments.of("After Return",
+                        // RETURN 1; print(2); print(3);
+                        Arrays.asList(ret(1), print(2), print(3)),
+                        Arrays.asList(ret(1)),
+                        6
+                ),
+                Arguments.of("If True",
+                        // IF TRUE DO print(1); ELSE print(2); END print(3);
+                        Arrays.asList(new Ast.Stmt.If(literal(true), Arrays.asList(print(1)), Arrays.asList(print(2))), print(3)),
+                        Arrays.asList(print(1), print(3)),
+                        5
+                ),
+                Arguments.of("If False Returns",
+                        // IF (FALSE) DO print(1); ELSE RETURN 2; END print(3);
+                        Arrays.asList(new Ast.Stmt.If(new Ast.Expr.Group(literal(false)), Arrays.asList(print(1)), Arrays.asList(ret(2))), print(3)),
+                        Arrays.asList(ret(2)),
+                        9
+                ),
+                Arguments.of("If Declaration",
+                        // IF FALSE DO print(1); ELSE LET x = 2; END
+                        Arrays.asList(new Ast.Stmt.If(literal(false), Arrays.asList(print(1)), Arrays.asList(let("x", 2)))),
+                        Arrays.asList(new Ast.Stmt.If(bool(true), Arrays.asList(let("x", 2)), Arrays.asList())),
+                        3
+                ),
+                Arguments.of("Then Removed",
+                        // IF c DO WHILE FALSE DO print(1); END ELSE print(2); WHILE FALSE DO print(3); END END
+                        Arrays.asList(new Ast.Stmt.If(access("c"),
+                                Arrays.asList(new Ast.Stmt.While(literal(false), Arrays.asList(print(1)))),
+                                Arrays.asList(print(2), new Ast.Stmt.While(literal(false), Arrays.asList(print(3)))))),
+                        Arrays.asList(new Ast.Stmt.If(negated(access("c")), Arrays.asList(print(2)), Arrays.asList())),
+                        10
+                ),
+                Arguments.of("While False",
+                        // WHILE FALSE DO print(1); END WHILE TRUE DO RETURN 1; print(2); END
+                        Arrays.asList(
+                                new Ast.Stmt.While(literal(false), Arrays.asList(print(1))),
+                                new Ast.Stmt.While(literal(true), Arrays.asList(ret(1), print(2)))
+                        ),
+                        Arrays.asList(new Ast.Stmt.While(literal(true), Arrays.asList(ret(1)))),
+                        8
+                )
+        );
+    }
+
+    private static Ast.Expr.Literal literal(Object value) {
+        return new Ast.Expr.Literal(value instanceof Integer ? BigInteger.valueOf((Integer) value) : value);
+    }
+
+    private static Ast.Expr.Literal bool(boolean value) {
+        Ast.Expr.Literal literal = new Ast.Expr.Literal(value);
+        literal.setType(Environment.Type.BOOLEAN);
+        return literal;
+    }
+
+    private static Ast.Expr.Access access(String name) {
+        return new Ast.Expr.Access(Optional.empty(), name);
+    }
+
+    /**
+     * Returns {@code (condition) == FALSE}, typed as Boolean.
+     */
+    private static Ast.Expr negated(Ast.Expr condition) {
+        Ast.Expr.Group group = new Ast.Expr.Group(condition);
+        group.setType(Environment.Type.BOOLEAN);
+        Ast.Expr.Binary binary = new Ast.Expr.Binary("==", group, bool(false));
+        binary.setType(Environment.Type.BOOLEAN);
+        return binary;
+    }
+
+    private static Ast.Stmt print(int value) {
+        return new Ast.Stmt.Expression(new Ast.Expr.Function(Optional.empty(), "print", Arrays.asList(literal(value))));
+    }
+
+    private static Ast.Stmt ret(int value) {
+        return new Ast.Stmt.Return(literal(value));
+    }
+
+    private static Ast.Stmt let(String name, int value) {
+        return new Ast.Stmt.Declaration(name, Optional.of(literal(value)));
+    }
+
+}
@@ -0,0 +1,121 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class FlatAstTests {
+
+    private static final String SOURCE = String.join("\n",
+            "LET count: Integer = 0;",
+            "LET name: String;",
+            "DEF add(a: Integer, b: Decimal): Decimal DO",
+            "    count = count + 1;",
+            "    LET s: String = \"n\" + a;",
+            "    IF a > 1 DO print(s.length); ELSE print(NIL); END",
+            "    WHILE FALSE DO print('c'); END",
+            "    FOR i IN repeat(a, 2) DO print(i); END",
+            "    RETURN b * 2.5 + (b - 1.0) + 2147483648.0;",
+            "END",
+            "DEF main(): Integer DO",
+            "    LET x = add(1, 1.5);",
+            "    print(x);",
+            "    RETURN 0;",
+            "END"
+    );
+
+    @Test
+    void testParsed() {
+        Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        FlatAst flat = FlatAst.of(ast);
+        Ast.Source copy = (Ast.Source) flat.toAst();
+        Assertions.assertEquals(ast, copy);
+        Assertions.assertEquals(ast.getMethods().get(1).getIndex(), copy.getMethods().get(1).getIndex());
+        Assertions.assertEquals(SOURCE.indexOf("count ="), copy.getMethods().get(0).getStatements().get(0).getIndex());
+    }
+
+    @Test
+    void testAnalyzed() {
+        Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        Scope scope = new Scope(null);
+        scope.defineFunction("repeat", "java.util.Collections.nCopies", Arrays.asList(Environment.Type.INTEGER, Environment.Type.INTEGER), Environment.Type.INTEGER_ITERABLE, args -> Environment.NIL);
+        new Analyzer(scope).visit(ast);
+        FlatAst flat = FlatAst.of(ast);
+        Ast.Source copy = (Ast.Source) flat.toAst();
+        Assertions.assertEquals(ast, copy);
+        Assertions.assertSame(ast.getMethods().get(0).getFunction(), copy.getMethods().get(0).getFunction());
+        Assertions.assertEquals(Environment.Type.DECIMAL, ((Ast.Stmt.Return) copy.getMethods().get(0).getStatements().get(5)).getValue().getType());
+    }
+
+    @Test
+    void testCursor() {
+        Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        FlatAst flat = FlatAst.of(ast);
+        int root = flat.getRoot();
+        Assertions.assertEquals(FlatAst.Kind.SOURCE, flat.getKind(root));
+        Assertions.assertEquals(2, flat.getSymbol(root));
+        Assertions.assertEquals(flat.size(), count(flat, root));
+        // DEF add ... RETURN b * 2.5 + (b - 1.0) + 2147483648.0;
+        int method = flat.getChild(root, 2);
+        Assertions.assertEquals("add", flat.getName(method));
+        int value = flat.getChild(flat.getChild(method, 5), 0);
+        Assertions.assertEquals(FlatAst.Kind.BINARY, flat.getKind(value));
+        Assertions.assertEquals("+", flat.getName(value));
+        Assertions.assertEquals(FlatAst.Kind.LITERAL, flat.getKind(flat.getChild(value, 1)));
+        // LET count: Integer = 0;
+        int literal = flat.getChild(flat.getChild(root, 0), 0);
+        Assertions.assertEquals(FlatAst.Kind.INTEGER, flat.getKind(literal));
+        Assertions.assertEquals(0, flat.getSymbol(literal));
+        // LET name: String;
+        Assertions.assertEquals(-1, flat.getChild(flat.getChild(root, 1), 0));
+    }
+
+    @Test
+    void testSnapshot(@TempDir Path directory) {
+        Ast.Source ast = new Parser(new Lexer(SOURCE).lex()).parseSource();
+        Path parsed = directory.resolve("parsed.ast");
+        FlatAst.of(ast).write(parsed);
+        Assertions.assertEquals(ast, FlatAst.map(parsed).toAst());
+        Scope scope = new Scope(null);
+        scope.defineFunction("repeat", "java.util.Collections.nCopies", Arrays.asList(Environment.Type.INTEGER, Environment.Type.INTEGER), Environment.Type.INTEGER_ITERABLE, args -> Environment.NIL);
+        new Analyzer(scope).visit(ast);
+        Path analyzed = directory.resolve("analyzed.ast");
+        FlatAst.of(ast).write(analyzed);
+        Ast.Source copy = (Ast.Source) FlatAst.map(analyzed).toAst();
+        Assertions.assertEquals(ast, copy);
+        Assertions.assertEquals(SOURCE.indexOf("RETURN b"), copy.getMethods().get(0).getStatements().get(5).getIndex());
+        Assertions.assertSame(copy.getMethods().get(0).getStatements().get(5), copy.getMethods().get(0).getStatements().get(5));
+        Assertions.assertEquals(generate(ast), generate(copy));
+    }
+
+    @Test
+    void testSnapshotInvalid(@TempDir Path directory) throws Exception {
+        Path path = directory.resolve("invalid.ast");
+        Files.write(path, SOURCE.getBytes("UTF-8"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> FlatAst.map(path));
+    }
+
+    private static String generate(Ast.Source ast) {
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        return writer.toString();
+    }
+
+    private static int count(FlatAst flat, int node) {
+        int count = 1;
+        for (int i = 0; i < flat.getChildCount(node); i++) {
+            int child = flat.getChild(node, i);
+            if (child >= 0) {
+                count += count(flat, child);
+            }
+        }
+        return count;
+    }
+
+}
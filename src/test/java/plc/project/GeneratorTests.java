@@ -1,16 +1,26 @@
 package plc.project;
 
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.ByteArrayOutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -147,6 +157,23 @@ public class GeneratorTests {
                                 init(new Ast.Expr.Literal(BigInteger.TEN), ast -> ast.setType(Environment.Type.INTEGER))
                         ), ast -> ast.setType(Environment.Type.STRING)),
                         "\"Ben\" + 10"
+                ),
+                Arguments.of("Concatenation Chain",
+                        // "Ben" + (10 + " and " + NIL) + 'c'
+                        init(new Ast.Expr.Binary("+",
+                                init(new Ast.Expr.Binary("+",
+                                        init(new Ast.Expr.Literal("Ben"), ast -> ast.setType(Environment.Type.STRING)),
+                                        init(new Ast.Expr.Group(init(new Ast.Expr.Binary("+",
+                                                init(new Ast.Expr.Binary("+",
+                                                        init(new Ast.Expr.Literal(BigInteger.TEN), ast -> ast.setType(Environment.Type.INTEGER)),
+                                                        init(new Ast.Expr.Literal(" and "), ast -> ast.setType(Environment.Type.STRING))
+                                                ), ast -> ast.setType(Environment.Type.STRING)),
+                                                init(new Ast.Expr.Literal(null), ast -> ast.setType(Environment.Type.NIL))
+                                        ), ast -> ast.setType(Environment.Type.STRING))), ast -> ast.setType(Environment.Type.STRING))
+                                ), ast -> ast.setType(Environment.Type.STRING)),
+                                init(new Ast.Expr.Literal('c'), ast -> ast.setType(Environment.Type.CHARACTER))
+                        ), ast -> ast.setType(Environment.Type.STRING)),
+                        "new StringBuilder(41).append(\"Ben\").append(10).append(\" and \").append((Object) null).append('c').toString()"
                 )
         );
     }
@@ -179,6 +206,198 @@ public class GeneratorTests {
         );
     }
 
+    @Test
+    void testSinks() {
+        // print("Hello, World!") with a non-ASCII, supplementary character
+        Ast.Expr.Function ast = init(new Ast.Expr.Function(Optional.empty(), "print", Arrays.asList(
+                init(new Ast.Expr.Literal("h\u00e9llo \u4e16\ud83c\udf0d"), literal -> literal.setType(Environment.Type.STRING))
+        )), function -> function.setFunction(new Environment.Function("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL)));
+        String expected = "System.out.println(\"h\u00e9llo \u4e16\ud83c\udf0d\")";
+
+        Sink.Builder builder = new Sink.Builder();
+        new Generator(builder).visit(ast);
+        Assertions.assertEquals(expected, builder.toString());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Sink.Utf8 utf8 = new Sink.Utf8(Channels.newChannel(bytes), ByteBuffer.allocateDirect(8));
+        new Generator(utf8).visit(ast);
+        utf8.flush();
+        Assertions.assertEquals(expected, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+
+        //unpaired surrogates are replaced, including one left pending at the end
+        bytes.reset();
+        utf8.write("a\udf0d\ud83cb\ud83c");
+        utf8.flush();
+        Assertions.assertEquals("a??b?", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testSteadyStateAllocation() {
+        // DEF main(): Integer DO
+        //     print("Hello, World!" + (1 + 2.0));
+        //     RETURN -12345;
+        // END
+        Ast.Source ast = new Ast.Source(
+                Arrays.asList(),
+                Arrays.asList(init(new Ast.Method("main", Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                        new Ast.Stmt.Expression(init(new Ast.Expr.Function(Optional.empty(), "print", Arrays.asList(
+                                init(new Ast.Expr.Binary("+",
+                                        init(new Ast.Expr.Literal("Hello, World!"), literal -> literal.setType(Environment.Type.STRING)),
+                                        init(new Ast.Expr.Group(init(new Ast.Expr.Binary("+",
+                                                init(Ast.Expr.Literal.ofInteger(1), literal -> literal.setType(Environment.Type.INTEGER)),
+                                                init(Ast.Expr.Literal.ofDecimal(2.0), literal -> literal.setType(Environment.Type.DECIMAL))
+                                        ), binary -> binary.setType(Environment.Type.DECIMAL))), group -> group.setType(Environment.Type.DECIMAL))
+                                ), binary -> binary.setType(Environment.Type.STRING))
+                        )), function -> function.setFunction(new Environment.Function("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL)))),
+                        new Ast.Stmt.Return(init(Ast.Expr.Literal.ofInteger(-12345), literal -> literal.setType(Environment.Type.INTEGER)))
+                )), method -> method.setFunction(new Environment.Function("main", "main", Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL))))
+        );
+        Sink discard = new Sink() {
+
+            @Override
+            public void write(char c) {}
+
+            @Override
+            public void write(String string) {}
+
+            @Override
+            public void write(char[] chars, int offset, int length) {}
+
+        };
+        Generator generator = new Generator(discard);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        for (int i = 0; i < 20_000; i++) {
+            generator.visit(ast);
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 20_000; i++) {
+            generator.visit(ast);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        Assertions.assertTrue(allocated / 20_000 < 8, "Allocated " + allocated + " bytes over 20000 runs.");
+    }
+
+    @Test
+    void testParallelSource() {
+        // DEF method<i>(): Integer DO
+        //     print(<i>);
+        //     RETURN <i>;
+        // END
+        List<Ast.Method> methods = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            methods.add(method(i));
+        }
+        Ast.Source ast = new Ast.Source(Arrays.asList(), methods);
+
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+        Sink.Builder builder = new Sink.Builder();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new Generator(builder, pool).visit(ast);
+        } finally {
+            pool.shutdown();
+        }
+        Assertions.assertEquals(writer.toString(), builder.toString());
+    }
+
+    @Test
+    void testCachedSource() {
+        List<Ast.Method> methods = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            methods.add(method(i));
+        }
+        Ast.Source ast = new Ast.Source(Arrays.asList(), methods);
+        StringWriter writer = new StringWriter();
+        new Generator(new PrintWriter(writer)).visit(ast);
+
+        Generator.Cache cache = new Generator.Cache(1 << 20);
+        Sink.Builder first = new Sink.Builder();
+        new Generator(first, null, cache).visit(ast);
+        Assertions.assertEquals(writer.toString(), first.toString());
+        Assertions.assertEquals(0, cache.getHits());
+        Assertions.assertEquals(8, cache.getMisses());
+
+        // a structurally equal copy of the source with one method changed
+        List<Ast.Method> edited = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            edited.add(method(i == 3 ? 100 : i));
+        }
+        Sink.Builder second = new Sink.Builder();
+        new Generator(second, null, cache).visit(new Ast.Source(Arrays.asList(), edited));
+        Assertions.assertEquals(writer.toString().replace("method3", "method100").replace("(3)", "(100)").replace("return 3;", "return 100;"), second.toString());
+        Assertions.assertEquals(7, cache.getHits());
+        Assertions.assertEquals(9, cache.getMisses());
+    }
+
+    @Test
+    void testCacheEviction() {
+        Generator.Cache cache = new Generator.Cache(10);
+        cache.put(method(1), "0123456");
+        cache.put(method(2), "0123456");
+        Assertions.assertNull(cache.get(method(1)));
+        Assertions.assertEquals("0123456", cache.get(method(2)));
+        Assertions.assertEquals(7, cache.size());
+    }
+
+    @Test
+    void testCacheFingerprint() {
+        Assertions.assertEquals(Generator.Cache.fingerprint(method(1)), Generator.Cache.fingerprint(method(1)));
+        Assertions.assertNotEquals(Generator.Cache.fingerprint(method(1)), Generator.Cache.fingerprint(method(2)));
+        //the same tree with a function that generates a different name
+        Ast.Method renamed = method(1);
+        renamed.setFunction(new Environment.Function("method1", "renamed", Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL));
+        Assertions.assertNotEquals(Generator.Cache.fingerprint(method(1)), Generator.Cache.fingerprint(renamed));
+    }
+
+    @Test
+    void testSourceMap() {
+        String source = String.join("\n",
+                "DEF main(): Integer DO",
+                "    print(\"Hi\");",
+                "    RETURN 0;",
+                "END"
+        );
+        List<Token> tokens = new ArrayList<>();
+        int index = 0;
+        for (String literal : new String[] {"DEF", "main", "(", ")", ":", "Integer", "DO", "print", "(", "\"Hi\"", ")", ";", "RETURN", "0", ";", "END"}) {
+            index = source.indexOf(literal, index);
+            Token.Type type = literal.startsWith("\"") ? Token.Type.STRING
+                    : Character.isDigit(literal.charAt(0)) ? Token.Type.INTEGER
+                    : Character.isLetter(literal.charAt(0)) ? Token.Type.IDENTIFIER : Token.Type.OPERATOR;
+            tokens.add(new Token(type, literal, index));
+            index += literal.length();
+        }
+        Ast.Source ast = new Parser(tokens).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+
+        SourceMap map = new SourceMap();
+        Generator generator = new Generator(new Sink.Builder(), new ForkJoinPool(2));
+        generator.setSourceMap(map);
+        generator.visit(ast);
+        //line 7 is the method header, line 8 the call and 10 the closing brace
+        Assertions.assertEquals(-1, map.lookup(3));
+        Assertions.assertEquals(source.indexOf("DEF"), map.lookup(7));
+        Assertions.assertEquals(source.indexOf("print"), map.lookup(8));
+        Assertions.assertEquals(source.indexOf("RETURN"), map.lookup(10));
+        Assertions.assertTrue(map.toSmap("Main.java", "main.plc", source).contains(lines("*L", "1#1:7", "2#1:8", "3#1:9", "*E")));
+    }
+
+    private static String lines(String... lines) {
+        return String.join(System.lineSeparator(), lines);
+    }
+
+    private static Ast.Method method(int i) {
+        return init(new Ast.Method("method" + i, Arrays.asList(), Arrays.asList(), Optional.of("Integer"), Arrays.asList(
+                new Ast.Stmt.Expression(init(new Ast.Expr.Function(Optional.empty(), "print", Arrays.asList(
+                        init(new Ast.Expr.Literal(BigInteger.valueOf(i)), ast -> ast.setType(Environment.Type.INTEGER))
+                )), ast -> ast.setFunction(new Environment.Function("print", "System.out.println", Arrays.asList(Environment.Type.ANY), Environment.Type.NIL, args -> Environment.NIL)))),
+                new Ast.Stmt.Return(init(new Ast.Expr.Literal(BigInteger.valueOf(i)), ast -> ast.setType(Environment.Type.INTEGER)))
+        )), ast -> ast.setFunction(new Environment.Function("method" + i, "method" + i, Arrays.asList(), Environment.Type.INTEGER, args -> Environment.NIL)));
+    }
+
     /**
      * Helper function for tests, using a StringWriter as the output stream.
      */
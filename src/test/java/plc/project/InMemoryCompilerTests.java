@@ -0,0 +1,76 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class InMemoryCompilerTests {
+
+    @Test
+    void testCompile() {
+        List<Object> fileManagers = new ArrayList<>();
+        int[] created = {0};
+        JavaCompiler system = ToolProvider.getSystemJavaCompiler();
+        //records the file manager each compile uses, and how many are created
+        JavaCompiler compiler = (JavaCompiler) Proxy.newProxyInstance(InMemoryCompilerTests.class.getClassLoader(), new Class<?>[] {JavaCompiler.class}, (proxy, method, args) -> {
+            if (method.getName().equals("getStandardFileManager")) {
+                created[0]++;
+            } else if (method.getName().equals("getTask")) {
+                fileManagers.add(args[1]);
+            }
+            try {
+                return method.invoke(system, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        });
+        InMemoryCompiler inMemory = new InMemoryCompiler(compiler);
+        String source = generate("DEF main(): Integer DO LET x = 2; RETURN x * 21; END");
+        Assertions.assertEquals(42, run(inMemory.compile("Main", source)));
+        Assertions.assertEquals(42, run(inMemory.compile("Main", source)));
+        Assertions.assertEquals(1, created[0]);
+        Assertions.assertEquals(2, fileManagers.size());
+        Assertions.assertSame(fileManagers.get(0), fileManagers.get(1));
+    }
+
+    @Test
+    void testCompileError() {
+        InMemoryCompiler compiler = new InMemoryCompiler();
+        RuntimeException exception = Assertions.assertThrows(RuntimeException.class, () -> compiler.compile("Main", "public class Main { int main() { return \"0\"; } }"));
+        Assertions.assertTrue(exception.getMessage().startsWith("Compilation of Main failed:"), exception.getMessage());
+        //the compiler is still usable after an error
+        Assertions.assertEquals(42, run(compiler.compile("Main", generate("DEF main(): Integer DO RETURN 42; END"))));
+    }
+
+    private static String generate(String source) {
+        Ast.Source ast = new Parser(new Lexer(source).lex()).parseSource();
+        new Analyzer(new Scope(null)).visit(ast);
+        Sink.Builder builder = new Sink.Builder();
+        new Generator(builder).visit(ast);
+        return builder.toString();
+    }
+
+    /**
+     * Loads the compiled {@code Main} class and returns the result of its
+     * {@code main} method.
+     */
+    private static Object run(Map<String, byte[]> classes) {
+        try {
+            Class<?> main = InMemoryCompiler.load(classes).loadClass("Main");
+            Method method = main.getDeclaredMethod("main");
+            method.setAccessible(true);
+            return method.invoke(main.getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+}
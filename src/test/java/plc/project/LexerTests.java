@@ -0,0 +1,139 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class LexerTests {
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testLex(String test, String input, List<Token> expected) {
+        Assertions.assertEquals(expected, new Lexer(input).lex());
+    }
+
+    private static Stream<Arguments> testLex() {
+        return Stream.of(
+                Arguments.of("Identifier", "getName", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "getName", 0)
+                )),
+                Arguments.of("Hyphenated Identifier", "a-b _1", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "a-b", 0),
+                        new Token(Token.Type.IDENTIFIER, "_1", 4)
+                )),
+                Arguments.of("Signed Numbers", "-1 +2.50 - 3", Arrays.asList(
+                        new Token(Token.Type.INTEGER, "-1", 0),
+                        new Token(Token.Type.DECIMAL, "+2.50", 3),
+                        new Token(Token.Type.OPERATOR, "-", 9),
+                        new Token(Token.Type.INTEGER, "3", 11)
+                )),
+                Arguments.of("Trailing Decimal Point", "1.", Arrays.asList(
+                        new Token(Token.Type.INTEGER, "1", 0),
+                        new Token(Token.Type.OPERATOR, ".", 1)
+                )),
+                Arguments.of("Character", "'c' '\\n'", Arrays.asList(
+                        new Token(Token.Type.CHARACTER, "'c'", 0),
+                        new Token(Token.Type.CHARACTER, "'\\n'", 4)
+                )),
+                Arguments.of("String", "\"a\\\"b\\\\\"", Arrays.asList(
+                        new Token(Token.Type.STRING, "\"a\\\"b\\\\\"", 0)
+                )),
+                Arguments.of("Operators", "<=<!= ==(", Arrays.asList(
+                        new Token(Token.Type.OPERATOR, "<=", 0),
+                        new Token(Token.Type.OPERATOR, "<", 2),
+                        new Token(Token.Type.OPERATOR, "!=", 3),
+                        new Token(Token.Type.OPERATOR, "==", 6),
+                        new Token(Token.Type.OPERATOR, "(", 8)
+                )),
+                Arguments.of("Whitespace", " \b\r\n\tx\t", Arrays.asList(
+                        new Token(Token.Type.IDENTIFIER, "x", 5)
+                )),
+                Arguments.of("Surrogate Pair", "\uD83D\uDE00x", Arrays.asList(
+                        new Token(Token.Type.OPERATOR, "\uD83D\uDE00", 0),
+                        new Token(Token.Type.IDENTIFIER, "x", 2)
+                ))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testException(String test, String input, int index) {
+        ParseException exception = Assertions.assertThrows(ParseException.class, () -> new Lexer(input).lex());
+        Assertions.assertEquals(index, exception.getIndex());
+    }
+
+    private static Stream<Arguments> testException() {
+        return Stream.of(
+                Arguments.of("Empty Character", "''", 1),
+                Arguments.of("Multiple Characters", "'ab'", 2),
+                Arguments.of("Invalid Escape", "\"a\\q\"", 3),
+                Arguments.of("Unterminated String", "x \"abc", 6),
+                Arguments.of("Newline In String", "\"a\nb\"", 2)
+        );
+    }
+
+    @Test
+    void testUtf8(@TempDir Path directory) throws IOException {
+        String source = String.join("\r\n",
+                "LET s: String = \"h\u00E9llo \u20AC \uD83D\uDE00\";",
+                "DEF main(): Integer DO",
+                "    print(s + '\u00E9' + 1.5);",
+                "    RETURN 0;",
+                "END"
+        );
+        List<Token> expected = new Lexer(source).lex();
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        Assertions.assertEquals(expected, new Lexer(ByteBuffer.wrap(bytes)).lex());
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        Assertions.assertEquals(expected, new Lexer(direct).lex());
+        Path file = Files.write(directory.resolve("main.plc"), bytes);
+        Assertions.assertEquals(expected, Lexer.map(file).lex());
+    }
+
+    @Test
+    void testInvalidUtf8() {
+        byte[] bytes = {'a', ' ', (byte) 0xC3, '(', ')'};
+        ParseException exception = Assertions.assertThrows(ParseException.class, () -> new Lexer(ByteBuffer.wrap(bytes)).lex());
+        Assertions.assertEquals(2, exception.getIndex());
+    }
+
+    @Test
+    void testBuffer() {
+        String source = "LET x = ELSEIF <= 'c' + \"DEF\";\n" + "DEF f(a-b) DO RETURN -1.5 != \uD83D\uDE00; END";
+        List<Token> expected = new Lexer(source).lex();
+        TokenBuffer buffer = new Lexer(source).lexBuffer();
+        Assertions.assertEquals(expected.size(), buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            Assertions.assertEquals(expected.get(i), buffer.get(i));
+            Assertions.assertEquals(expected.get(i).getKind(), buffer.getKind(i));
+        }
+    }
+
+    @Test
+    void testParser() {
+        String source = String.join("\n",
+                "LET x: Integer = 1;",
+                "DEF main(): Integer DO",
+                "    print(\"x = \" + x);",
+                "    RETURN x;",
+                "END"
+        );
+        Ast.Source expected = new Parser(new Lexer(source).lex()).parseSource();
+        Assertions.assertEquals(expected, new Parser(new Lexer(source)).parseSource());
+        Assertions.assertEquals(expected, new Parser(new Lexer(source).lexBuffer()).parseSource());
+    }
+
+}
@@ -0,0 +1,390 @@
+package plc.project;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class ParserTests {
+
+    private static final Pattern TOKEN = Pattern.compile("(?<identifier>[A-Za-z_][A-Za-z0-9_-]*)|(?<integer>[0-9]+)|(?<string>\"[^\"]*\")|(?<operator>[<>!=]=|\\S)");
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testStreaming(String test, String source) {
+        List<Token> tokens = lex(source);
+        Ast.Source expected = new Parser(tokens).parseSource();
+        Ast.Source actual = new Parser(tokens.iterator()).parseSource();
+        Assertions.assertEquals(expected, actual);
+    }
+
+    private static Stream<Arguments> testStreaming() {
+        return Stream.of(
+                Arguments.of("Fields And Methods", String.join("\n",
+                        "LET x: Integer = 1 + 2 * 3;",
+                        "DEF main(a: Integer, b: String): Integer DO",
+                        "    LET y = a.f(b, 2).g;",
+                        "    IF a >= 1 AND b != \"b\" DO print(a); ELSE y = (a - 1) / 2; END",
+                        "    WHILE y < 10 DO y = y + 1; END",
+                        "    FOR i IN list DO print(i); END",
+                        "    RETURN y;",
+                        "END"
+                )),
+                Arguments.of("Empty", "")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testStreamingException(String test, String source) {
+        List<Token> tokens = lex(source);
+        ParseException expected = Assertions.assertThrows(ParseException.class, () -> new Parser(tokens).parseSource());
+        ParseException actual = Assertions.assertThrows(ParseException.class, () -> new Parser(tokens.iterator()).parseSource());
+        Assertions.assertEquals(expected.getIndex(), actual.getIndex());
+    }
+
+    private static Stream<Arguments> testStreamingException() {
+        return Stream.of(
+                Arguments.of("Missing End", "DEF main() DO print(1);"),
+                Arguments.of("Missing Operand", "DEF main() DO print(1 +); END"),
+                Arguments.of("Field After Method", "DEF main() DO END LET x: Integer;")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testParallel(String test, String source) {
+        List<Token> tokens = lex(source);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Ast.Source expected;
+            try {
+                expected = new Parser(tokens).parseSource();
+            } catch (ParseException e) {
+                ParseException actual = Assertions.assertThrows(ParseException.class, () -> new Parser(tokens).parseSource(pool));
+                Assertions.assertEquals(e.getIndex(), actual.getIndex());
+                return;
+            }
+            Assertions.assertEquals(expected, new Parser(tokens).parseSource(pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Stream<Arguments> testParallel() {
+        StringBuilder methods = new StringBuilder("LET x: Integer = 0;\n");
+        for (int i = 0; i < 32; i++) {
+            methods.append("DEF f").append(i).append("(a: Integer): Integer DO IF a > ").append(i)
+                    .append(" DO WHILE a < 10 DO a = a + 1; END END RETURN a; END\n");
+        }
+        return Stream.of(
+                Arguments.of("Methods", methods.toString()),
+                Arguments.of("Error In Method", methods + "DEF g() DO print(1 +); END" + methods.toString().replace("LET x: Integer = 0;", "")),
+                Arguments.of("Missing End", "DEF f() DO IF x DO END DEF g() DO END DEF h() DO END"),
+                Arguments.of("Extra End", "DEF f() DO END END DEF g() DO END DEF h() DO END"),
+                Arguments.of("Field After Methods", "DEF f() DO END DEF g() DO END LET x: Integer;")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testReparse(String test, String target, String replacement, boolean reused) {
+        String source = String.join("\n",
+                "LET x: Integer = 1;",
+                "DEF f() DO print(1); END",
+                "DEF g(a: Integer) DO IF a > 1 DO print(a); END END",
+                "DEF h() DO print(3); END"
+        );
+        String edited = source.replace(target, replacement);
+        List<Token> oldTokens = lex(source);
+        List<Token> newTokens = lex(edited);
+        int[] range = range(oldTokens, newTokens);
+        int start = range[0];
+        int oldEnd = range[1];
+        int newEnd = range[2];
+        Ast.Source previous = new Parser(oldTokens).parseSource();
+        Ast.Source expected;
+        try {
+            expected = new Parser(newTokens).parseSource();
+        } catch (ParseException e) {
+            ParseException actual = Assertions.assertThrows(ParseException.class, () -> Parser.reparse(previous, oldTokens, newTokens, range[0], range[1], range[2]));
+            Assertions.assertEquals(e.getIndex(), actual.getIndex());
+            return;
+        }
+        Ast.Source actual = Parser.reparse(previous, oldTokens, newTokens, start, oldEnd, newEnd);
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(reused, actual.getMethods().get(0) == previous.getMethods().get(0) && actual.getMethods().get(2) == previous.getMethods().get(2));
+    }
+
+    @Test
+    void testReparseChained() {
+        String source = String.join("\n",
+                "DEF f() DO print(1); print(666666); END",
+                "DEF g() DO END",
+                "DEF h() DO END",
+                "DEF i() DO END"
+        );
+        String first = source.replace(" print(666666);", "");
+        String second = first.replace("DEF h() DO END", "DEF h() DO print(2); END");
+        List<Token> tokens = lex(source);
+        List<Token> firstTokens = lex(first);
+        List<Token> secondTokens = lex(second);
+        int[] range = range(tokens, firstTokens);
+        Ast.Source previous = Parser.reparse(new Parser(tokens).parseSource(), tokens, firstTokens, range[0], range[1], range[2]);
+        Assertions.assertEquals(new Parser(firstTokens).parseSource(), previous);
+        //g keeps its index from the first source, which is now that of h
+        range = range(firstTokens, secondTokens);
+        Ast.Source actual = Parser.reparse(previous, firstTokens, secondTokens, range[0], range[1], range[2]);
+        Assertions.assertEquals(new Parser(secondTokens).parseSource(), actual);
+    }
+
+    /**
+     * Returns the edited token range of the new tokens, from the common
+     * prefix and suffix, as the start and the old and new ends.
+     */
+    private static int[] range(List<Token> oldTokens, List<Token> newTokens) {
+        int start = 0;
+        while (start < Math.min(oldTokens.size(), newTokens.size()) && oldTokens.get(start).getLiteral().equals(newTokens.get(start).getLiteral())) {
+            start++;
+        }
+        int oldEnd = oldTokens.size();
+        int newEnd = newTokens.size();
+        while (oldEnd > start && newEnd > start && oldTokens.get(oldEnd - 1).getLiteral().equals(newTokens.get(newEnd - 1).getLiteral())) {
+            oldEnd--;
+            newEnd--;
+        }
+        return new int[] {start, oldEnd, newEnd};
+    }
+
+    private static Stream<Arguments> testReparse() {
+        return Stream.of(
+                Arguments.of("Within Method", "print(a);", "print(a + 1); print(a);", true),
+                Arguments.of("Last Method", "print(3);", "print(4);", false),
+                Arguments.of("Merges Methods", "END END", "END", false),
+                Arguments.of("New Method", "END END", "END END DEF i() DO print(5); END", false),
+                Arguments.of("Syntax Error", "print(a);", "print(a +);", false),
+                Arguments.of("Field", "= 1", "= 2", false)
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testLiteral(String test, Token.Type type, String literal, Object expected) {
+        Parser parser = new Parser(Arrays.asList(new Token(type, literal, 0)));
+        if (expected == null) {
+            ParseException exception = Assertions.assertThrows(ParseException.class, parser::parseExpression);
+            Assertions.assertEquals(literal.length(), exception.getIndex());
+        } else {
+            Assertions.assertEquals(new Ast.Expr.Literal(expected), parser.parseExpression());
+        }
+    }
+
+    private static Stream<Arguments> testLiteral() {
+        return Stream.of(
+                Arguments.of("Integer", Token.Type.INTEGER, "-12", BigInteger.valueOf(-12)),
+                Arguments.of("Integer Out Of Range", Token.Type.INTEGER, "2147483648", new BigInteger("2147483648")),
+                Arguments.of("Decimal", Token.Type.DECIMAL, "1.5", new BigDecimal("1.5")),
+                Arguments.of("Decimal Trailing Zeros", Token.Type.DECIMAL, "1.50", new BigDecimal("1.50")),
+                Arguments.of("Character", Token.Type.CHARACTER, "'c'", 'c'),
+                Arguments.of("Character Escape", Token.Type.CHARACTER, "'\\''", '\''),
+                Arguments.of("Invalid Character", Token.Type.CHARACTER, "'ab'", null),
+                Arguments.of("Invalid Escape", Token.Type.CHARACTER, "'\\q'", null),
+                Arguments.of("String", Token.Type.STRING, "\"string\"", "string"),
+                Arguments.of("Empty String", Token.Type.STRING, "\"\"", ""),
+                Arguments.of("String Escapes", Token.Type.STRING, "\"\\b\\n\\r\\t\\'\\\"\\\\\"", "\b\n\r\t'\"\\"),
+                //an escaped backslash is not the start of another escape
+                Arguments.of("Escaped Backslash", Token.Type.STRING, "\"a\\\\nb\"", "a\\nb")
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource
+    void testNumberForm(String test, Token.Type type, String literal, boolean primitive) {
+        Ast.Expr.Literal ast = (Ast.Expr.Literal) new Parser(Arrays.asList(new Token(type, literal, 0))).parseExpression();
+        Assertions.assertEquals(primitive, ast.isInt() || ast.isDouble());
+        Ast.Expr.Literal boxed = new Ast.Expr.Literal(type == Token.Type.INTEGER ? new BigInteger(literal) : new BigDecimal(literal));
+        Assertions.assertEquals(boxed, ast);
+        Assertions.assertEquals(boxed.hashCode(), ast.hashCode());
+    }
+
+    private static Stream<Arguments> testNumberForm() {
+        return Stream.of(
+                Arguments.of("Integer", Token.Type.INTEGER, "2147483647", true),
+                Arguments.of("Minimum Integer", Token.Type.INTEGER, "-2147483648", true),
+                Arguments.of("Leading Zeros", Token.Type.INTEGER, "000000000001", false),
+                Arguments.of("Integer Out Of Range", Token.Type.INTEGER, "-2147483649", false),
+                Arguments.of("Decimal", Token.Type.DECIMAL, "0.1", true),
+                Arguments.of("Negative Decimal", Token.Type.DECIMAL, "-2.5", true),
+                //a double would drop the trailing zero, and with it the scale of the BigDecimal
+                Arguments.of("Decimal Trailing Zeros", Token.Type.DECIMAL, "0.10", false),
+                Arguments.of("Large Decimal", Token.Type.DECIMAL, "12345678.0", false)
+        );
+    }
+
+    @Test
+    void testStringInterning() {
+        Ast.Expr.Function ast = (Ast.Expr.Function) new Parser(lex("f(\"abc\", \"abc\")")).parseExpression();
+        Object first = ((Ast.Expr.Literal) ast.getArguments().get(0)).getLiteral();
+        Object second = ((Ast.Expr.Literal) ast.getArguments().get(1)).getLiteral();
+        Assertions.assertEquals("abc", first);
+        Assertions.assertSame(first, second);
+    }
+
+    @Test
+    void testStringInterningParallel() {
+        StringBuilder source = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            source.append("DEF f").append(i).append("() DO print(\"a\\tb\"); END\n");
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Ast.Source ast = new Parser(lex(source.toString())).parseSource(pool);
+            List<Object> literals = ast.getMethods().stream()
+                    .map(method -> ((Ast.Expr.Function) ((Ast.Stmt.Expression) method.getStatements().get(0)).getExpression()).getArguments().get(0))
+                    .map(argument -> ((Ast.Expr.Literal) argument).getLiteral())
+                    .collect(Collectors.toList());
+            Assertions.assertEquals("a\tb", literals.get(0));
+            for (Object literal : literals) {
+                Assertions.assertSame(literals.get(0), literal);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testDiagnostics() {
+        String source = String.join("\n",
+                "LET x: = 1;",
+                "LET y: Integer;",
+                "DEF f() DO print(1 +); END",
+                "DEF h() DO LET; END",
+                "DEF g() DO print(2); END",
+                "LET z: Integer;"
+        );
+        Diagnostics diagnostics = new Diagnostics();
+        Parser parser = new Parser(lex(source));
+        parser.setDiagnostics(diagnostics);
+        Ast.Source ast = parser.parseSource();
+        Assertions.assertEquals(Arrays.asList("y"), ast.getFields().stream().map(Ast.Field::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList("g"), ast.getMethods().stream().map(Ast.Method::getName).collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList(source.indexOf("="), source.indexOf("+)") + 1, source.indexOf("; END", source.indexOf("h()")), source.indexOf("z")),
+                diagnostics.getDiagnostics().stream().map(Diagnostics.Diagnostic::getIndex).collect(Collectors.toList()));
+        Assertions.assertEquals("Expected Type Name after ':' at index " + source.indexOf("="), diagnostics.getDiagnostics().get(0).getMessage());
+    }
+
+    @Test
+    void testBinaryPrecedence() {
+        //compares precedence climbing against the one-method-per-level chain it replaced
+        String[] operators = {"AND", "OR", "==", "!=", "<", "<=", ">", ">=", "+", "-", "*", "/"};
+        Random random = new Random(5);
+        for (int i = 0; i < 2000; i++) {
+            StringBuilder source = new StringBuilder("x0");
+            for (int j = 0, n = random.nextInt(8); j < n; j++) {
+                source.append(' ').append(operators[random.nextInt(operators.length)]).append(" x").append(j + 1);
+            }
+            List<Token> tokens = lex(source.toString());
+            Ast.Expr expected = chain(tokens, new int[] {0}, 0);
+            Ast.Expr actual = new Parser(tokens).parseExpression();
+            Assertions.assertEquals(expected, actual, source.toString());
+            assertIndices(expected, actual);
+        }
+    }
+
+    @Test
+    void testExpressionDepth() {
+        //a bare operand is parsed through parseBinaryExpression and parseSecondaryExpression, not a rule per level
+        Assertions.assertEquals(depth(Parser::parsePrimaryExpression) + 3, depth(Parser::parseExpression));
+    }
+
+    /**
+     * Returns the deepest stack the parser reads the token of a bare literal
+     * from.
+     */
+    private static int depth(Function<Parser, Ast.Expr> rule) {
+        List<Token> tokens = Arrays.asList(new Token(Token.Type.INTEGER, "1", 0));
+        int[] depth = {0};
+        rule.apply(new Parser(new AbstractList<Token>() {
+
+            @Override
+            public Token get(int index) {
+                depth[0] = Math.max(depth[0], new Throwable().getStackTrace().length);
+                return tokens.get(index);
+            }
+
+            @Override
+            public int size() {
+                return tokens.size();
+            }
+
+        }));
+        return depth[0];
+    }
+
+    private static final List<List<String>> LEVELS = Arrays.asList(
+            Arrays.asList("AND", "OR"),
+            Arrays.asList("==", "!=", "<", "<=", ">", ">="),
+            Arrays.asList("+", "-"),
+            Arrays.asList("*", "/")
+    );
+
+    /**
+     * Parses a binary expression of identifiers with one left-associative loop
+     * per precedence level, as the parser did before precedence climbing.
+     */
+    private static Ast.Expr chain(List<Token> tokens, int[] position, int level) {
+        if (level == LEVELS.size()) {
+            Token token = tokens.get(position[0]++);
+            Ast.Expr access = new Ast.Expr.Access(Optional.empty(), token.getLiteral());
+            access.setIndex(token.getIndex());
+            return access;
+        }
+        Ast.Expr left = chain(tokens, position, level + 1);
+        while (position[0] < tokens.size() && LEVELS.get(level).contains(tokens.get(position[0]).getLiteral())) {
+            Token operator = tokens.get(position[0]++);
+            left = new Ast.Expr.Binary(operator.getLiteral(), left, chain(tokens, position, level + 1));
+            left.setIndex(operator.getIndex());
+        }
+        return left;
+    }
+
+    private static void assertIndices(Ast.Expr expected, Ast.Expr actual) {
+        Assertions.assertEquals(expected.getIndex(), actual.getIndex());
+        if (expected instanceof Ast.Expr.Binary) {
+            assertIndices(((Ast.Expr.Binary) expected).getLeft(), ((Ast.Expr.Binary) actual).getLeft());
+            assertIndices(((Ast.Expr.Binary) expected).getRight(), ((Ast.Expr.Binary) actual).getRight());
+        }
+    }
+
+    /**
+     * Splits a source into tokens, enough for parser tests.
+     */
+    private static List<Token> lex(String source) {
+        List<Token> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(source);
+        while (matcher.find()) {
+            Token.Type type = matcher.group("identifier") != null ? Token.Type.IDENTIFIER
+                    : matcher.group("integer") != null ? Token.Type.INTEGER
+                    : matcher.group("string") != null ? Token.Type.STRING : Token.Type.OPERATOR;
+            tokens.add(new Token(type, matcher.group(), matcher.start()));
+        }
+        return tokens;
+    }
+
+}